@@ -0,0 +1,41 @@
+package bguspl.set.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so every result is reported with its allocation rate.
+ * Any standard JMH command line option (e.g. a benchmark regex or -p features=3:4) may be passed, and -nogc runs
+ * the benchmarks without the GC profiler.
+ */
+public class BenchmarkRunner {
+
+    private static final String NO_GC = "-nogc";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        boolean gc = !Arrays.asList(args).contains(NO_GC);
+        String[] jmhArgs = Arrays.stream(args).filter(arg -> !arg.equals(NO_GC)).toArray(String[]::new);
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(new CommandLineOptions(jmhArgs));
+        if (gc && !profilesGc(jmhArgs))
+            options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+
+    /**
+     * @return - true iff the GC profiler is already requested on the command line (-prof gc).
+     */
+    private static boolean profilesGc(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++)
+            if (args[i].equals("-prof") && args[i + 1].startsWith("gc"))
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,125 @@
+package bguspl.set.bench;
+
+import bguspl.set.Config;
+import bguspl.set.PackedUtilImpl;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of the set detection engine (testSet, findSets and cardsToFeatures) for every Util implementation,
+ * over table sized and deck sized inputs and several (featureSize, featureCount) configurations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetDetectionBenchmark {
+
+    /**
+     * The number of prepared card arrays testSet cycles through (a power of 2).
+     */
+    private static final int CANDIDATES = 1024;
+
+    /**
+     * The card configuration, as featureSize:featureCount.
+     */
+    @Param({"3:4", "3:3", "3:5", "4:3", "4:4"})
+    public String features;
+
+    @Param({"UtilImpl", "PackedUtilImpl"})
+    public String implementation;
+
+    /**
+     * The cards findSets searches (a separate state, so the benchmarks that do not search are not run per input).
+     */
+    @State(Scope.Thread)
+    public static class Cards {
+
+        /**
+         * The cards on a standard table (12) or the whole deck.
+         */
+        @Param({"table", "deck"})
+        public String input;
+
+        private List<Integer> cards;
+
+        @Setup(Level.Trial)
+        public void setUp(SetDetectionBenchmark benchmark) {
+            List<Integer> deck = benchmark.deck;
+            cards = new ArrayList<>(input.equals("table") ? deck.subList(0, Math.min(12, deck.size())) : deck);
+        }
+    }
+
+    private Util util;
+    private List<Integer> deck;
+    private int[][] candidates;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] sizes = features.split(":");
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("FeatureSize", sizes[0]);
+        properties.put("FeatureCount", sizes[1]);
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        util = implementation.equals("PackedUtilImpl") ? new PackedUtilImpl(config) : new UtilImpl(config);
+
+        Random random = new Random(42);
+        deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, random);
+
+        // half of the candidates are legal sets, the other half are random cards (mostly illegal)
+        List<int[]> sets = util.findSets(deck, CANDIDATES / 2);
+        candidates = new int[CANDIDATES][];
+        for (int i = 0; i < CANDIDATES; ++i)
+            candidates[i] = i % 2 == 0 && !sets.isEmpty() ? sets.get((i / 2) % sets.size())
+                    : random.ints(config.featureSize, 0, config.deckSize).toArray();
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        next = (next + 1) & (CANDIDATES - 1);
+        return util.testSet(candidates[next]);
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        next = (next + 1) & (CANDIDATES - 1);
+        return util.cardsToFeatures(candidates[next]);
+    }
+
+    @Benchmark
+    public List<int[]> findFirstSet(Cards cards) {
+        return util.findSets(cards.cards, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findAllSets(Cards cards) {
+        return util.findSets(cards.cards, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,136 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * A log handler that writes to a file asynchronously: publishing a record only hands it over to a lock-free queue,
+ * and a background writer thread formats the records and writes them in batches through a large buffer (the file
+ * is flushed whenever the queue runs empty). So the game threads never wait for the file or for each other.
+ */
+public final class AsyncFileHandler extends Handler {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The published records, and flush requests (latches released once everything before them is written).
+     */
+    private final Queue<Object> queue;
+
+    private final Writer writer;
+    private final Thread thread;
+
+    /**
+     * True while the writer thread is parked (or about to park) waiting for records.
+     */
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    /**
+     * @param filename - the log file to create.
+     * @throws IOException - if the file cannot be created.
+     */
+    public AsyncFileHandler(String filename) throws IOException {
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), BUFFER_SIZE);
+        setFormatter(new SimpleFormatter());
+        this.thread = new Thread(this::run, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record))
+            return;
+        queue.add(record);
+        if (waiting)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Waits until all the records published so far are written to the file.
+     */
+    @Override
+    public void flush() {
+        if (closed || Thread.currentThread() == thread)
+            return;
+        CountDownLatch written = new CountDownLatch(1);
+        queue.add(written);
+        LockSupport.unpark(thread);
+        try {
+            while (!written.await(10, TimeUnit.MILLISECONDS))
+                if (!thread.isAlive())
+                    return; // closed meanwhile
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all the published records, stops the writer thread and closes the file.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Object item = queue.poll();
+            if (item instanceof LogRecord) {
+                try {
+                    writer.write(getFormatter().format((LogRecord) item));
+                } catch (Exception e) {
+                    reportError(null, e, ErrorManager.WRITE_FAILURE);
+                }
+            } else if (item != null) {
+                writeBatch();
+                ((CountDownLatch) item).countDown();
+            } else {
+                writeBatch();
+                if (closed)
+                    return;
+                waiting = true;
+                if (queue.isEmpty() && !closed)
+                    LockSupport.park(this);
+                waiting = false;
+            }
+        }
+    }
+
+    private void writeBatch() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A user interface decorator that hands the display updates over to a background thread: the game threads only
+ * write the update into a bounded ring buffer and return, and a single dispatcher thread applies the updates to the
+ * decorated user interface in order (so its logging, spinning and drawing never delay the game threads).
+ * <p>
+ * Consecutive countdown or elapsed time updates are merged (only the last one is applied), as are consecutive freeze
+ * updates of the same player. A game thread waits only if the dispatcher is a whole buffer behind.
+ */
+public final class AsyncUserInterface implements UserInterface {
+
+    private static final int CAPACITY = 1 << 10;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final int PLACE_CARD = 0;
+    private static final int REMOVE_CARD = 1;
+    private static final int PLACE_TOKEN = 2;
+    private static final int REMOVE_TOKENS = 3;
+    private static final int REMOVE_SLOT_TOKENS = 4;
+    private static final int REMOVE_TOKEN = 5;
+    private static final int COUNTDOWN = 6;
+    private static final int ELAPSED = 7;
+    private static final int FREEZE = 8;
+    private static final int SCORE = 9;
+    private static final int ANNOUNCE_WINNER = 10;
+    private static final int DISPOSE = 11;
+
+    /**
+     * An update in the ring buffer (the fields used depend on the type).
+     */
+    private static final class Update {
+        int type;
+        int player;
+        int slot;
+        int value;
+        long millis;
+        boolean warn;
+        int[] players;
+    }
+
+    private final UserInterface ui;
+    private final Update[] updates;
+
+    /**
+     * The ring buffer position whose update can be written into each slot (the update in a slot is published when
+     * the slot's sequence becomes its position + 1, and the slot is free again at position + CAPACITY).
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * The next position to write (shared by the game threads) and to read (dispatcher thread only).
+     */
+    private final AtomicLong tail;
+    private long head;
+
+    private final Thread thread;
+
+    /**
+     * True while the dispatcher thread is parked (or about to park) waiting for updates.
+     */
+    private volatile boolean waiting;
+    private volatile boolean disposed;
+
+    /**
+     * @param ui - the user interface to update.
+     */
+    public AsyncUserInterface(UserInterface ui) {
+        this.ui = ui;
+        this.updates = new Update[CAPACITY];
+        this.sequences = new AtomicLongArray(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            updates[i] = new Update();
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+        this.thread = new Thread(this::run, "ui-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        publish(PLACE_CARD, -1, slot, card, 0, false, null);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        publish(REMOVE_CARD, -1, slot, 0, 0, false, null);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        publish(PLACE_TOKEN, player, slot, 0, 0, false, null);
+    }
+
+    @Override
+    public void removeTokens() {
+        publish(REMOVE_TOKENS, -1, -1, 0, 0, false, null);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        publish(REMOVE_SLOT_TOKENS, -1, slot, 0, 0, false, null);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        publish(REMOVE_TOKEN, player, slot, 0, 0, false, null);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        publish(COUNTDOWN, -1, -1, 0, millies, warn, null);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        publish(ELAPSED, -1, -1, 0, millies, false, null);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        publish(FREEZE, player, -1, 0, millies, false, null);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        publish(SCORE, player, -1, score, 0, false, null);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        publish(ANNOUNCE_WINNER, -1, -1, 0, 0, false, players.clone());
+    }
+
+    /**
+     * Applies all the updates published so far, disposes of the decorated user interface and stops the dispatcher
+     * thread.
+     */
+    @Override
+    public void dispose() {
+        if (disposed)
+            return;
+        publish(DISPOSE, -1, -1, 0, 0, false, null);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes an update into the next position of the ring buffer (waiting for the position to be free, if the
+     * dispatcher is a whole buffer behind) and wakes the dispatcher up if needed.
+     */
+    private void publish(int type, int player, int slot, int value, long millis, boolean warn, int[] players) {
+        if (disposed)
+            return;
+        long position = tail.getAndIncrement();
+        int index = (int) (position & MASK);
+        while (sequences.get(index) != position) {
+            if (!thread.isAlive())
+                return; // disposed meanwhile
+            if (waiting)
+                LockSupport.unpark(thread);
+            LockSupport.parkNanos(50_000);
+        }
+        Update update = updates[index];
+        update.type = type;
+        update.player = player;
+        update.slot = slot;
+        update.value = value;
+        update.millis = millis;
+        update.warn = warn;
+        update.players = players;
+        sequences.set(index, position + 1);
+        if (waiting)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * @return - the update at the given ring buffer position, or null if it was not published yet.
+     */
+    private Update published(long position) {
+        int index = (int) (position & MASK);
+        return sequences.get(index) == position + 1 ? updates[index] : null;
+    }
+
+    private void run() {
+        while (true) {
+            Update update = published(head);
+            if (update == null) {
+                waiting = true;
+                if (published(head) == null)
+                    LockSupport.park(this);
+                waiting = false;
+                continue;
+            }
+
+            Update next = published(head + 1);
+            if (next == null || !replaces(next, update))
+                apply(update);
+            boolean dispose = update.type == DISPOSE;
+            update.players = null;
+            sequences.set((int) (head & MASK), head + CAPACITY);
+            head++;
+            if (dispose)
+                return;
+        }
+    }
+
+    /**
+     * @return - true iff applying the update makes applying the previous update redundant.
+     */
+    private static boolean replaces(Update update, Update previous) {
+        if (update.type != previous.type)
+            return false;
+        return update.type == COUNTDOWN || update.type == ELAPSED
+                || update.type == FREEZE && update.player == previous.player;
+    }
+
+    private void apply(Update update) {
+        switch (update.type) {
+            case PLACE_CARD:
+                ui.placeCard(update.value, update.slot);
+                break;
+            case REMOVE_CARD:
+                ui.removeCard(update.slot);
+                break;
+            case PLACE_TOKEN:
+                ui.placeToken(update.player, update.slot);
+                break;
+            case REMOVE_TOKENS:
+                ui.removeTokens();
+                break;
+            case REMOVE_SLOT_TOKENS:
+                ui.removeTokens(update.slot);
+                break;
+            case REMOVE_TOKEN:
+                ui.removeToken(update.player, update.slot);
+                break;
+            case COUNTDOWN:
+                ui.setCountdown(update.millis, update.warn);
+                break;
+            case ELAPSED:
+                ui.setElapsed(update.millis);
+                break;
+            case FREEZE:
+                ui.setFreeze(update.player, update.millis);
+                break;
+            case SCORE:
+                ui.setScore(update.player, update.value);
+                break;
+            case ANNOUNCE_WINNER:
+                ui.announceWinner(update.players);
+                break;
+            case DISPOSE:
+                disposed = true;
+                ui.dispose();
+                break;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package bguspl.set;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+/**
+ * The card images of the Swing user interface, decoded in parallel in the background as soon as it is created.
+ * The images of the cards placed on the table are decoded first (ahead of the rest of the deck), and placing a card
+ * never waits for its image: it is handed out once it is decoded, and the caller shows a placeholder until then.
+ */
+class CardSprites {
+
+    private final Logger logger;
+    private final IntFunction<BufferedImage> decoder;
+
+    /**
+     * The image of each card (completed by the decoding workers).
+     */
+    private final List<CompletableFuture<BufferedImage>> images;
+
+    /**
+     * Whether each card's decoding was started (so each card is decoded once).
+     */
+    private final AtomicIntegerArray started;
+
+    /**
+     * The cards requested by the caller, decoded before the next cards in deck order.
+     */
+    private final Queue<Integer> requested;
+    private final AtomicInteger nextInOrder;
+
+    /**
+     * Whether each card's image was handed out, and whether the caller waits for it (caller thread only).
+     */
+    private final boolean[] taken;
+    private final boolean[] waited;
+
+    /**
+     * The image handed out instead of a card image that could not be decoded.
+     */
+    private final BufferedImage fallback;
+
+    /**
+     * @param logger   - the logger to report decoding failures to.
+     * @param cards    - the number of cards.
+     * @param decoder  - decodes the image of a card (called in parallel, on the common pool).
+     * @param fallback - the image to hand out instead of a card image that could not be decoded.
+     */
+    CardSprites(Logger logger, int cards, IntFunction<BufferedImage> decoder, BufferedImage fallback) {
+        this(logger, cards, decoder, fallback, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param workers - the number of cards decoded in parallel.
+     */
+    CardSprites(Logger logger, int cards, IntFunction<BufferedImage> decoder, BufferedImage fallback, int workers) {
+        this.logger = logger;
+        this.decoder = decoder;
+        this.fallback = fallback;
+        this.images = new ArrayList<>(cards);
+        for (int card = 0; card < cards; card++)
+            images.add(new CompletableFuture<>());
+        this.started = new AtomicIntegerArray(cards);
+        this.requested = new ConcurrentLinkedQueue<>();
+        this.nextInOrder = new AtomicInteger();
+        this.taken = new boolean[cards];
+        this.waited = new boolean[cards];
+        for (int i = 0; i < Math.max(1, workers); i++)
+            CompletableFuture.runAsync(this::decodeAll);
+    }
+
+    /**
+     * Decodes the requested cards and then the next cards in deck order, until all the cards are decoded.
+     */
+    private void decodeAll() {
+        while (true) {
+            Integer card = requested.poll();
+            if (card == null) {
+                card = nextInOrder.getAndIncrement();
+                if (card >= images.size())
+                    return;
+            }
+            if (started.compareAndSet(card, 0, 1))
+                decode(card);
+        }
+    }
+
+    private void decode(int card) {
+        try {
+            BufferedImage image = decoder.apply(card);
+            if (image == null)
+                throw new IllegalStateException("no image decoded");
+            images.get(card).complete(image);
+        } catch (RuntimeException e) {
+            images.get(card).completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Hands out a card's image if it is decoded, otherwise decodes it ahead of the other cards and calls whenDecoded
+     * (on a decoding thread) once it is.
+     *
+     * @param card        - the card.
+     * @param whenDecoded - called once the image is decoded (only if null is returned, and only once per card).
+     * @return - the card's image the first time it is taken after it is decoded, and null otherwise.
+     */
+    BufferedImage take(int card, Runnable whenDecoded) {
+        if (taken[card])
+            return null;
+        CompletableFuture<BufferedImage> image = images.get(card);
+        if (!image.isDone()) {
+            if (!waited[card]) {
+                waited[card] = true;
+                requested.add(card);
+                image.whenComplete((decoded, failure) -> whenDecoded.run());
+            }
+            return null;
+        }
+        taken[card] = true;
+        try {
+            return image.join();
+        } catch (CompletionException e) {
+            logger.severe("failed to load the image of card " + card + ": " + e.getCause());
+            return fallback;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.SplittableRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +22,11 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The seed of all the random generators of the game (the same seed deals the same cards)
+     */
+    public final long seed;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -36,6 +42,11 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * Whether to use the packed (bitwise) card encoding for set detection
+     */
+    public final boolean packedCards;
+
     /**
      * The number of human players in the game.
      */
@@ -51,6 +62,31 @@ public class Config {
      */
     public final int players;
 
+    /**
+     * Whether to run the player and computer player threads as virtual threads
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * Whether to write a binary journal of the game events (next to the log file)
+     */
+    public final boolean journal;
+
+    /**
+     * The strategy of the computer players ("random" or "solver")
+     */
+    public final String computerStrategy;
+
+    /**
+     * The time in milliseconds it takes a "solver" computer player to react to the cards on the table
+     */
+    public final long computerReactionMillis;
+
+    /**
+     * The probability (0 to 1) that a "solver" computer player claims an illegal set
+     */
+    public final double computerErrorRate;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -78,8 +114,8 @@ public class Config {
     public final long pointFreezeMillis;
 
     /**
-     * The number of milliseconds to delay before removing/placing a card on the
-     * table
+     * The number of milliseconds between successive card placement/removal
+     * animations on the screen (the table itself is updated immediately)
      */
     public final long tableDelayMillis;
 
@@ -135,6 +171,11 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * Whether the game threads hand the display updates over to a background thread (instead of waiting for them)
+     */
+    public final boolean asyncUserInterface;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -163,7 +204,7 @@ public class Config {
      * @param filename - the name of the configuration file.
      * @return - a properties object with the configuration file contents.
      */
-    private static Properties loadProperties(String filename, Logger logger) {
+    static Properties loadProperties(String filename, Logger logger) {
 
         Properties properties = new Properties();
 
@@ -194,7 +235,7 @@ public class Config {
 
         // logger settings
         Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
-        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        String logFormat = properties.getProperty("LogFormat", LogFormatter.DEFAULT_FORMAT);
         Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
 
         // for debugging
@@ -202,17 +243,26 @@ public class Config {
         randomSpinMax = Long.parseLong(properties.getProperty("RandomSpinMax", "0"));
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
+        String seedProperty = properties.getProperty("Seed", "").trim();
+        seed = seedProperty.isEmpty() ? new SplittableRandom().nextLong() : Long.parseLong(seedProperty);
+        logger.severe("random seed: " + seed);
 
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        packedCards = Boolean.parseBoolean(properties.getProperty("PackedCards", "False"));
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
 
+        virtualThreads = Boolean.parseBoolean(properties.getProperty("VirtualThreads", "False"));
+        journal = Boolean.parseBoolean(properties.getProperty("Journal", "False"));
+        computerStrategy = properties.getProperty("ComputerStrategy", "random").trim().toLowerCase();
+        computerReactionMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "1")) * 1000.0);
+        computerErrorRate = Double.parseDouble(properties.getProperty("ComputerErrorRate", "0"));
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60"))
@@ -235,6 +285,7 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        asyncUserInterface = Boolean.parseBoolean(properties.getProperty("AsyncUserInterface", "False"));
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
@@ -1,18 +1,85 @@
 package bguspl.set;
 
+import java.util.SplittableRandom;
 import java.util.logging.Logger;
 
 public class Env {
 
     public final Logger logger;
+
+    /**
+     * The logging facade of the game threads (over logger).
+     */
+    public final GameLog log;
     public final Config config;
     public final UserInterface ui;
     public final Util util;
 
-    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+    /**
+     * The game's shared timer (freeze expiry and countdown ticks).
+     */
+    public final TimerWheel timer;
+
+    /**
+     * The game's statistics (may be shared by several games).
+     */
+    public final GameStats stats;
+
+    /**
+     * The game's binary event journal (Journal.DISABLED if the game is not journaled).
+     */
+    public final Journal journal;
+
+    /**
+     * The root random generator of the game, split into a generator per component.
+     */
+    private final SplittableRandom random;
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameStats stats, long seed,
+               Journal journal) {
         this.logger = logger;
+        this.log = new GameLog(logger);
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.stats = stats;
+        this.journal = journal;
+        this.timer = new TimerWheel(logger);
+        this.random = new SplittableRandom(seed);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameStats stats, long seed) {
+        this(logger, config, ui, util, stats, seed, Journal.DISABLED);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameStats stats) {
+        this(logger, config, ui, util, stats, config.seed);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new GameStats(config.players));
+    }
+
+    /**
+     * Splits a new random generator off the game's root generator. Each component gets its own generator (which is
+     * not thread safe, so it must be used by a single thread), so the components of a game draw the same random
+     * numbers for the same seed when they are created in the same order.
+     *
+     * @return - the new random generator.
+     */
+    public synchronized SplittableRandom splitRandom() {
+        return random.split();
+    }
+
+    /**
+     * Creates a (not yet started) game thread: a virtual thread if config.virtualThreads is set, otherwise a
+     * platform thread.
+     *
+     * @param task - the thread's main loop.
+     * @param name - the thread name.
+     * @return - the new thread.
+     */
+    public Thread newThread(Runnable task, String name) {
+        return config.virtualThreads ? Thread.ofVirtual().name(name).unstarted(task) : new Thread(task, name);
     }
 }
@@ -0,0 +1,60 @@
+package bguspl.set;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The logging facade of the game threads. The message is built only if its level is enabled (the values are passed
+ * as parameters, primitives unboxed), so logging allocates nothing when it is filtered out. The "thread <name> "
+ * prefix of the thread messages is built once per thread.
+ */
+public class GameLog {
+
+    private static final ThreadLocal<String> threadPrefix =
+            ThreadLocal.withInitial(() -> "thread " + Thread.currentThread().getName() + " ");
+
+    private final Logger logger;
+
+    public GameLog(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * @return - true iff INFO messages are logged.
+     */
+    public boolean isInfoEnabled() {
+        return logger.isLoggable(Level.INFO);
+    }
+
+    /**
+     * Logs "thread <current thread name> <message>" at INFO level.
+     *
+     * @param message - the message.
+     */
+    public void thread(String message) {
+        if (logger.isLoggable(Level.INFO))
+            logger.info(threadPrefix.get() + message);
+    }
+
+    /**
+     * Logs "thread <current thread name> <message><value>" at INFO level.
+     *
+     * @param message - the message.
+     * @param value   - the value appended to the message.
+     */
+    public void thread(String message, int value) {
+        if (logger.isLoggable(Level.INFO))
+            logger.info(threadPrefix.get() + message + value);
+    }
+
+    /**
+     * Logs "<message><value>" at INFO level.
+     *
+     * @param message - the message.
+     * @param value   - the value appended to the message.
+     */
+    public void info(String message, int value) {
+        if (logger.isLoggable(Level.INFO))
+            logger.info(message + value);
+    }
+}
@@ -0,0 +1,150 @@
+package bguspl.set;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated statistics of one or more games: number of games and sets, set claim latencies and winners.
+ * All the methods are thread safe (the statistics may be shared by games running in parallel).
+ */
+public class GameStats {
+
+    /**
+     * Latencies below this many microseconds get a bucket each; above it, every power of 2 is split into
+     * SUB_BUCKETS buckets (so percentiles are accurate to within 1/SUB_BUCKETS).
+     */
+    private static final int LINEAR_MICROS = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder sets = new LongAdder();
+    private final LongAdder ties = new LongAdder();
+    private final AtomicLongArray wins;
+    private final AtomicLongArray claimLatencies;
+    private final LongAdder claims = new LongAdder();
+
+    /**
+     * @param players - the number of players in each game.
+     */
+    public GameStats(int players) {
+        this.wins = new AtomicLongArray(players);
+        this.claimLatencies = new AtomicLongArray(bucketOf(Long.MAX_VALUE) + 1);
+    }
+
+    /**
+     * Records a finished game.
+     */
+    public void recordGame() {
+        games.increment();
+    }
+
+    /**
+     * Records a legal set (a point).
+     */
+    public void recordSet() {
+        sets.increment();
+    }
+
+    /**
+     * Records the time from a set claim until the dealer checked it.
+     *
+     * @param nanos - the claim latency in nanoseconds.
+     */
+    public void recordClaim(long nanos) {
+        claims.increment();
+        claimLatencies.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos))));
+    }
+
+    /**
+     * Records the winner(s) of a game.
+     *
+     * @param players - the ids of the winners (more than one on a tie).
+     */
+    public void recordWinners(int[] players) {
+        if (players.length > 1)
+            ties.increment();
+        for (int player : players)
+            wins.incrementAndGet(player);
+    }
+
+    public long games() {
+        return games.sum();
+    }
+
+    public long sets() {
+        return sets.sum();
+    }
+
+    public long claims() {
+        return claims.sum();
+    }
+
+    public long ties() {
+        return ties.sum();
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the number of games the player won (including ties).
+     */
+    public long wins(int player) {
+        return wins.get(player);
+    }
+
+    /**
+     * @param percentile - the percentile (0 to 100).
+     * @return - the claim latency in microseconds (the upper bound of its bucket) at the given percentile.
+     */
+    public long claimLatencyMicros(double percentile) {
+        long count = claims.sum();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < claimLatencies.length(); bucket++) {
+            seen += claimLatencies.get(bucket);
+            if (seen >= rank)
+                return upperBoundOf(bucket);
+        }
+        return upperBoundOf(claimLatencies.length() - 1);
+    }
+
+    /**
+     * @param seconds - the time it took to run the games.
+     * @return - a human readable report of the statistics.
+     */
+    public String report(double seconds) {
+        StringBuilder report = new StringBuilder();
+        long games = games(), sets = sets();
+        report.append(String.format("games: %d in %.2fs (%.1f games/sec)%n", games, seconds, games / seconds));
+        report.append(String.format("sets: %d (%.1f sets/sec)%n", sets, sets / seconds));
+        report.append(String.format("claims: %d, latency p50 %dus p90 %dus p99 %dus p99.9 %dus max %dus%n", claims(),
+                claimLatencyMicros(50), claimLatencyMicros(90), claimLatencyMicros(99), claimLatencyMicros(99.9),
+                claimLatencyMicros(100)));
+        report.append("wins:");
+        for (int player = 0; player < wins.length(); player++)
+            report.append(String.format(" player %d: %d (%.1f%%)", player + 1, wins(player),
+                    games == 0 ? 0.0 : 100.0 * wins(player) / games));
+        report.append(String.format(", ties: %d%n", ties()));
+        return report.toString();
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < LINEAR_MICROS)
+            return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_MICROS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_MICROS)
+            return bucket;
+        int exponent = (bucket - LINEAR_MICROS) / SUB_BUCKETS + 4;
+        long subBucket = (bucket - LINEAR_MICROS) % SUB_BUCKETS;
+        long lower = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,227 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A binary journal of the game events, written through a memory-mapped file.
+ * <p>
+ * File format (little endian): a HEADER_SIZE bytes header (int MAGIC, int VERSION, int RECORD_SIZE, int the number
+ * of records, or -1 if the journal was not closed, long the wall clock time in milliseconds when the journal was
+ * opened, long the System::nanoTime then) followed by RECORD_SIZE bytes records (long System::nanoTime, long thread
+ * id, int event type code, int player, int slot, int value). A record of type 0 was reserved but not written (e.g.
+ * if the game crashed). The file is not truncated after the last record (it stays mapped until the mappings are
+ * garbage collected), so the records after the number of records in the header are to be ignored.
+ * <p>
+ * Writing a record is lock-free: the writer reserves its place in the file with an atomic add, and writes it
+ * directly into the mapped memory (the file is mapped in SEGMENT_SIZE segments, as needed).
+ * The unused fields of a record are -1.
+ */
+public class Journal implements Closeable {
+
+    /**
+     * The journal events.
+     */
+    public enum Type {
+        /** A card was placed: slot, value = card. */
+        CARD_PLACED,
+        /** A card was removed: slot, value = card. */
+        CARD_REMOVED,
+        /** A token was placed: player, slot. */
+        TOKEN_PLACED,
+        /** A token was removed: player, slot. */
+        TOKEN_REMOVED,
+        /** A player claimed a set: player. */
+        CLAIM_SUBMITTED,
+        /** The dealer checked a claim: player, value = 1 for a legal set and 0 for an illegal one. */
+        CLAIM_VERDICT,
+        /** A player was frozen: player, value = the freeze milliseconds. */
+        FREEZE_START,
+        /** A player's freeze ended: player. */
+        FREEZE_END,
+        /** The deck was reshuffled: value = the cards in the deck. */
+        RESHUFFLE,
+        /** A player's key press was carried out on a card: player, slot, value = the card in the slot. */
+        KEY_PRESSED;
+
+        private static final Type[] types = values();
+
+        /**
+         * @return - the type code in the journal file (0 is reserved for "not written").
+         */
+        public int code() {
+            return ordinal() + 1;
+        }
+
+        /**
+         * @param code - a type code.
+         * @return - the type with the code, or null if there is none.
+         */
+        public static Type of(int code) {
+            return code >= 1 && code <= types.length ? types[code - 1] : null;
+        }
+    }
+
+    public static final int MAGIC = 0x4A544553; // "SETJ"
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 32;
+
+    private static final int SEGMENT_SIZE = 1 << 24;
+    private static final int MAX_SEGMENTS = 1 << 10;
+
+    /**
+     * A journal that records nothing.
+     */
+    public static final Journal DISABLED = new Journal(null);
+
+    private final FileChannel channel;
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+
+    /**
+     * The position in the file of the next record.
+     */
+    private final AtomicLong position;
+
+    private volatile boolean closed;
+
+    private Journal(FileChannel channel) {
+        this.channel = channel;
+        this.segments = new AtomicReferenceArray<>(channel == null ? 0 : MAX_SEGMENTS);
+        this.position = new AtomicLong(HEADER_SIZE);
+    }
+
+    /**
+     * Creates a journal file (replacing an existing one) and writes its header.
+     *
+     * @param path - the journal file.
+     * @return - the journal.
+     * @throws IOException - if the file cannot be created.
+     */
+    public static Journal open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Journal journal = new Journal(channel);
+        MappedByteBuffer header = journal.segment(0);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, RECORD_SIZE);
+        header.putInt(12, -1);
+        header.putLong(16, System.currentTimeMillis());
+        header.putLong(24, System.nanoTime());
+        return journal;
+    }
+
+    /**
+     * @return - true iff the journal records events.
+     */
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    public void cardPlaced(int card, int slot) {
+        record(Type.CARD_PLACED, -1, slot, card);
+    }
+
+    public void cardRemoved(int card, int slot) {
+        record(Type.CARD_REMOVED, -1, slot, card);
+    }
+
+    public void tokenPlaced(int player, int slot) {
+        record(Type.TOKEN_PLACED, player, slot, -1);
+    }
+
+    public void tokenRemoved(int player, int slot) {
+        record(Type.TOKEN_REMOVED, player, slot, -1);
+    }
+
+    public void claimSubmitted(int player) {
+        record(Type.CLAIM_SUBMITTED, player, -1, -1);
+    }
+
+    public void claimVerdict(int player, boolean legal) {
+        record(Type.CLAIM_VERDICT, player, -1, legal ? 1 : 0);
+    }
+
+    public void freezeStart(int player, long millis) {
+        record(Type.FREEZE_START, player, -1, (int) Math.min(millis, Integer.MAX_VALUE));
+    }
+
+    public void freezeEnd(int player) {
+        record(Type.FREEZE_END, player, -1, -1);
+    }
+
+    public void keyPressed(int player, int slot, int card) {
+        record(Type.KEY_PRESSED, player, slot, card);
+    }
+
+    public void reshuffle(int deckSize) {
+        record(Type.RESHUFFLE, -1, -1, deckSize);
+    }
+
+    /**
+     * Records an event, time stamped now by the current thread. Does nothing if the journal is disabled, closed or
+     * full (or cannot grow).
+     */
+    public void record(Type type, int player, int slot, int value) {
+        if (channel == null || closed)
+            return;
+        long pos = position.getAndAdd(RECORD_SIZE);
+        int index = (int) (pos / SEGMENT_SIZE);
+        if (index >= MAX_SEGMENTS)
+            return;
+        MappedByteBuffer segment = segments.get(index);
+        if (segment == null && (segment = segment(index)) == null)
+            return;
+        int offset = (int) (pos % SEGMENT_SIZE);
+        segment.putLong(offset, System.nanoTime());
+        segment.putLong(offset + 8, Thread.currentThread().threadId());
+        segment.putInt(offset + 20, player);
+        segment.putInt(offset + 24, slot);
+        segment.putInt(offset + 28, value);
+        segment.putInt(offset + 16, type.code());
+    }
+
+    /**
+     * Maps a segment of the file (growing the file if needed).
+     *
+     * @return - the segment, or null if it cannot be mapped.
+     */
+    private synchronized MappedByteBuffer segment(int index) {
+        MappedByteBuffer segment = segments.get(index);
+        if (segment == null && !closed) {
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * SEGMENT_SIZE, SEGMENT_SIZE);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments.set(index, segment);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Closes the journal, writing the number of records into the header. Must be called after all the game threads
+     * finished writing.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null || closed)
+            return;
+        closed = true;
+        long end = Math.min(position.get(), (long) MAX_SEGMENTS * SEGMENT_SIZE);
+        segments.get(0).putInt(12, (int) ((end - HEADER_SIZE) / RECORD_SIZE));
+        for (int i = 0; i < segments.length(); i++)
+            if (segments.get(i) != null)
+                segments.get(i).force();
+        channel.close();
+    }
+}
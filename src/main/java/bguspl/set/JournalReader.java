@@ -0,0 +1,174 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reads a game journal (see Journal for the file format) record by record. The current record's fields are read with
+ * the accessors after next() returned true.
+ * <p>
+ * As a tool: JournalReader &lt;journal file&gt; prints the records as text, followed by a count of each event type.
+ */
+public class JournalReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private final long startMillis;
+    private final long startNanos;
+
+    /**
+     * The number of records left to read (negative if unknown: then the file is read to its end).
+     */
+    private long remaining;
+
+    private Journal.Type type;
+    private long nanos;
+    private long threadId;
+    private int player;
+    private int slot;
+    private int value;
+
+    /**
+     * @param path - the journal file.
+     * @throws IOException - if the file cannot be read or is not a journal.
+     */
+    public JournalReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocate(Journal.RECORD_SIZE * 2048).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(0);
+        if (!fill(Journal.HEADER_SIZE) || buffer.getInt() != Journal.MAGIC) {
+            channel.close();
+            throw new IOException(path + " is not a game journal");
+        }
+        int version = buffer.getInt();
+        int recordSize = buffer.getInt();
+        this.remaining = buffer.getInt();
+        if (version != Journal.VERSION || recordSize != Journal.RECORD_SIZE) {
+            channel.close();
+            throw new IOException(path + ": unsupported journal version " + version);
+        }
+        this.startMillis = buffer.getLong();
+        this.startNanos = buffer.getLong();
+    }
+
+    /**
+     * Reads the next record (skipping records that were not written).
+     *
+     * @return - true iff there was a next record.
+     */
+    public boolean next() throws IOException {
+        while (remaining != 0 && fill(Journal.RECORD_SIZE)) {
+            remaining--;
+            nanos = buffer.getLong();
+            threadId = buffer.getLong();
+            type = Journal.Type.of(buffer.getInt());
+            player = buffer.getInt();
+            slot = buffer.getInt();
+            value = buffer.getInt();
+            if (type != null)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes sure the buffer has at least the given number of bytes.
+     *
+     * @return - false iff the end of the file was reached first.
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return true;
+        buffer.compact();
+        while (buffer.position() < bytes)
+            if (channel.read(buffer) < 0)
+                break;
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    /**
+     * @return - the wall clock time (in milliseconds) when the journal was opened.
+     */
+    public long startMillis() {
+        return startMillis;
+    }
+
+    public Journal.Type type() {
+        return type;
+    }
+
+    /**
+     * @return - the System::nanoTime of the event.
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * @return - the nanoseconds since the journal was opened.
+     */
+    public long elapsedNanos() {
+        return nanos - startNanos;
+    }
+
+    public long threadId() {
+        return threadId;
+    }
+
+    public int player() {
+        return player;
+    }
+
+    public int slot() {
+        return slot;
+    }
+
+    public int value() {
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Prints a journal as text.
+     *
+     * @param args - the journal file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: JournalReader <journal file>");
+            System.exit(1);
+        }
+        Map<Journal.Type, Integer> counts = new EnumMap<>(Journal.Type.class);
+        try (JournalReader reader = new JournalReader(Paths.get(args[0]))) {
+            StringBuilder line = new StringBuilder();
+            while (reader.next()) {
+                line.setLength(0);
+                line.append(String.format("%12.3fms", reader.elapsedNanos() / 1e6)).append(" [thread ")
+                        .append(reader.threadId()).append("] ").append(reader.type());
+                if (reader.player() >= 0)
+                    line.append(" player=").append(reader.player() + 1);
+                if (reader.slot() >= 0)
+                    line.append(" slot=").append(reader.slot());
+                if (reader.value() >= 0)
+                    line.append(" value=").append(reader.value());
+                System.out.println(line);
+                counts.merge(reader.type(), 1, Integer::sum);
+            }
+        }
+        counts.forEach((type, count) -> System.out.println(type + ": " + count));
+    }
+}
@@ -0,0 +1,56 @@
+package bguspl.set;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * Formats log records with a String::format pattern whose arguments are the time, the level and the message.
+ * The default pattern is formatted by hand (String::format is slow, and formatting the time with it even more so).
+ * Not synchronized: each handler formats on one thread (see AsyncFileHandler).
+ */
+public class LogFormatter extends Formatter {
+
+    /**
+     * The default format (time with milliseconds, padded level and message).
+     */
+    public static final String DEFAULT_FORMAT = "[%1$tT.%1$tL] [%2$-7s] %3$s%n";
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final String format;
+    private final boolean defaultFormat;
+
+    public LogFormatter(String format) {
+        this.format = format;
+        this.defaultFormat = DEFAULT_FORMAT.equals(format);
+    }
+
+    @Override
+    public String format(LogRecord lr) {
+        if (!defaultFormat)
+            return String.format(format, new Date(lr.getMillis()), lr.getLevel().getLocalizedName(), lr.getMessage());
+
+        LocalTime time = LocalTime.ofInstant(lr.getInstant(), ZoneId.systemDefault());
+        String level = lr.getLevel().getLocalizedName();
+        String message = lr.getMessage();
+        StringBuilder sb = new StringBuilder(28 + (message == null ? 4 : message.length()));
+        sb.append('[');
+        appendPadded(sb, time.getHour(), 2).append(':');
+        appendPadded(sb, time.getMinute(), 2).append(':');
+        appendPadded(sb, time.getSecond(), 2).append('.');
+        appendPadded(sb, time.getNano() / 1_000_000, 3).append("] [").append(level);
+        for (int i = level.length(); i < 7; i++)
+            sb.append(' ');
+        return sb.append("] ").append(message).append(LINE_SEPARATOR).toString();
+    }
+
+    private static StringBuilder appendPadded(StringBuilder sb, int value, int digits) {
+        for (int limit = 10, i = 1; i < digits; i++, limit *= 10)
+            if (value < limit)
+                sb.append('0');
+        return sb.append(value);
+    }
+}
@@ -6,10 +6,10 @@ import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.logging.*;
 
 /**
@@ -23,6 +23,11 @@ public class Main {
     private static boolean xButtonPressed = false;
     private static Logger logger;
 
+    /**
+     * The path of the game's log file, without the extension (the journal file is named the same).
+     */
+    private static String logName;
+
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null) logger.severe("exit button pressed");
         xButtonPressed = true;
@@ -43,7 +48,7 @@ public class Main {
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
+        Util util = config.packedCards ? new PackedUtilImpl(config) : new UtilImpl(config);
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
@@ -56,8 +61,11 @@ public class Main {
                 logger.severe("warning: running with human players with no user interface");
         }
         ui = new UserInterfaceDecorator(logger, util, ui);
+        if (config.asyncUserInterface)
+            ui = new AsyncUserInterface(ui);
 
-        Env env = new Env(logger, config, ui, util);
+        Journal journal = openJournal(config);
+        Env env = new Env(logger, config, ui, util, new GameStats(config.players), config.seed, journal);
 
         // create the game entities
         Table table = new Table(env);
@@ -79,7 +87,12 @@ public class Main {
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed) env.ui.dispose();
-            for (Handler h : logger.getHandlers()) h.flush();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.severe("error closing the journal: " + e);
+            }
+            for (Handler h : logger.getHandlers()) h.close();
         }
     }
 
@@ -87,11 +100,12 @@ public class Main {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
+        Handler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            logName = "./logs/" + format.format(Calendar.getInstance().getTime());
+            handler = new AsyncFileHandler(logName + ".log");
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -99,22 +113,25 @@ public class Main {
         java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
         logger.setUseParentHandlers(false);
         logger.addHandler(handler);
-        setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        setLoggerLevelAndFormat(logger, Level.ALL, LogFormatter.DEFAULT_FORMAT);
 
         return logger;
     }
 
+    private static Journal openJournal(Config config) {
+        if (!config.journal)
+            return Journal.DISABLED;
+        try {
+            return Journal.open(Paths.get(logName + ".journal"));
+        } catch (IOException e) {
+            logger.severe("cannot create the journal: " + e);
+            return Journal.DISABLED;
+        }
+    }
+
     public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
         Handler[] handlers = logger.getHandlers();
-        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
-            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
-            @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(format, new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(), lr.getMessage()
-                );
-            }
-        }));
+        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new LogFormatter(format)));
         logger.setLevel(level);
     }
 }
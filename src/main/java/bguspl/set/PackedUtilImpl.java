@@ -0,0 +1,85 @@
+package bguspl.set;
+
+/**
+ * An implementation of the Util interface that packs the features of each card into the bit fields of one long
+ * (2 bits per feature, values 1..3), so legal sets are detected with a few bitwise operations on all features at
+ * once. Only the standard featureSize of 3 can be packed; any other configuration falls back to UtilImpl.
+ */
+public class PackedUtilImpl extends UtilImpl {
+
+    /**
+     * The low bit of every 2 bits feature field.
+     */
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    /**
+     * The packed features of every card in the deck (null if the configuration cannot be packed).
+     */
+    private final long[] packedCards;
+
+    public PackedUtilImpl(Config config) {
+        super(config);
+
+        if (config.featureSize != 3 || config.featureCount > Long.SIZE / 2) {
+            packedCards = null;
+            return;
+        }
+
+        packedCards = new long[config.deckSize];
+        for (int card = 0; card < config.deckSize; ++card)
+            packedCards[card] = pack(card, config.featureCount);
+    }
+
+    /**
+     * @return - the packed features of the card (the first feature in the highest field).
+     */
+    private static long pack(int card, int featureCount) {
+        long packed = 0;
+        for (int shift = 0; shift < 2 * featureCount; shift += 2) {
+            packed |= (long) (card % 3 + 1) << shift;
+            card /= 3;
+        }
+        return packed;
+    }
+
+    /**
+     * @return - a mask with the low bit of each feature field set iff that field is not zero.
+     */
+    private static long nonZeroFields(long fields) {
+        return (fields | (fields >>> 1)) & LOW_BITS;
+    }
+
+    private int unpack(long packed) {
+        int card = 0;
+        for (int shift = 2 * (config.featureCount - 1); shift >= 0; shift -= 2)
+            card = card * 3 + (int) ((packed >>> shift) & 3) - 1;
+        return card;
+    }
+
+    /**
+     * With values 1..3 a feature is all different iff the xor of the 3 fields is 0, and all the same iff the xor
+     * equals both the first and the second field.
+     */
+    @Override
+    public boolean testSet(int[] cards) {
+        if (packedCards == null || cards.length != 3) return super.testSet(cards);
+
+        long a = packedCards[cards[0]], b = packedCards[cards[1]], c = packedCards[cards[2]];
+        long xor = a ^ b ^ c;
+        long notSame = (xor ^ a) | (xor ^ b);
+        return (nonZeroFields(xor) & nonZeroFields(notSame)) == 0;
+    }
+
+    /**
+     * The missing field is the common value where the 2 cards agree, and their xor where they differ.
+     */
+    @Override
+    public int completeSet(int[] cards) {
+        if (packedCards == null) return super.completeSet(cards);
+
+        long a = packedCards[cards[0]], b = packedCards[cards[1]];
+        long differ = nonZeroFields(a ^ b);
+        differ |= differ << 1;
+        return unpack((a & ~differ) | ((a ^ b) & differ));
+    }
+}
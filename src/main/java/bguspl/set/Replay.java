@@ -0,0 +1,334 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Deck;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * This class contains the main function of the game replay: it feeds the deals, reshuffles, key presses and claim
+ * checks recorded in a game journal back to a new game (the dealer deals the recorded cards and checks the claims in
+ * the recorded order, through its Dealer.Script, and the players' keys are pressed through Player::keyPressed), either at the original speed or
+ * as fast as possible, and reports where the time was spent.
+ * <p>
+ * Usage: Replay &lt;journal file&gt; [original|fast [swing|headless [configuration file]]]
+ * <p>
+ * The players are replayed as human players (with no computer player threads). The configuration file (default
+ * config.properties) should be the one of the recorded game. When replaying as fast as possible the freezes and the
+ * table delay are 0, since the recorded key presses were already accepted after the freezes.
+ */
+public class Replay {
+
+    /**
+     * How long to wait for the game to reach the recorded state before an event (otherwise the replay diverged).
+     */
+    private static final long SYNC_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The dealer's decisions taken from the recorded game: the recorded cards are dealt, the claims wait for their
+     * recorded verdicts and the rounds end at the recorded reshuffles.
+     */
+    private static final class Script implements Dealer.Script {
+
+        /**
+         * The cards to deal, in order (a card that is not in the deck is replaced by the top card).
+         */
+        private final int[] dealOrder;
+
+        /**
+         * The number of cards dealt so far.
+         */
+        private volatile int dealt;
+
+        /**
+         * The number of reshuffles requested and not done yet.
+         */
+        private final AtomicInteger reshuffles = new AtomicInteger();
+
+        Script(int[] dealOrder) {
+            this.dealOrder = dealOrder;
+        }
+
+        @Override
+        public int nextCard(Deck deck) {
+            int card = dealt < dealOrder.length ? dealOrder[dealt] : -1;
+            dealt++;
+            return card >= 0 && deck.draw(card) ? card : deck.draw();
+        }
+
+        @Override
+        public boolean checkWhenClaimed(int player) {
+            return false;
+        }
+
+        @Override
+        public boolean roundOver(boolean byTheRules) {
+            return reshuffles.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+        }
+    }
+
+    private final Dealer dealer;
+    private final Script script;
+    private final Table table;
+    private final Player[] players;
+
+    /**
+     * The recorded events to replay: key presses, claim verdicts and reshuffles (after the first deal).
+     */
+    private final Journal.Type[] types;
+    private final long[] times;
+    private final int[] eventPlayers;
+    private final int[] slots;
+    private final int[] cards;
+
+    /**
+     * The number of cards the dealer had dealt when each event was recorded.
+     */
+    private final int[] dealtBefore;
+    private final int count;
+
+    /**
+     * The time spent in each phase of the replay, in nanoseconds.
+     */
+    private long waitingNanos, dealingNanos, reshufflingNanos, pressingNanos, checkingNanos;
+    private int divergences, moved;
+
+    /**
+     * The first event the dealer did not catch up with, or -1.
+     */
+    private int divergedAt = -1;
+
+    private Replay(Dealer dealer, Script script, Table table, Player[] players, Journal.Type[] types, long[] times,
+                   int[] eventPlayers, int[] slots, int[] cards, int[] dealtBefore, int count) {
+        this.dealer = dealer;
+        this.script = script;
+        this.table = table;
+        this.players = players;
+        this.types = types;
+        this.times = times;
+        this.eventPlayers = eventPlayers;
+        this.slots = slots;
+        this.cards = cards;
+        this.dealtBefore = dealtBefore;
+        this.count = count;
+    }
+
+    /**
+     * The replay's main function.
+     *
+     * @param args - the journal file, the speed (default original), the user interface (default swing) and the
+     *             configuration file (default config.properties).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("usage: Replay <journal file> [original|fast [swing|headless [configuration file]]]");
+            System.exit(1);
+        }
+        boolean fast = args.length > 1 && args[1].equalsIgnoreCase("fast");
+        boolean headless = args.length > 2 && args[2].equalsIgnoreCase("headless");
+        String configFilename = args.length > 3 ? args[3] : "config.properties";
+
+        Logger logger = Logger.getLogger("SetReplayLogger");
+        logger.setUseParentHandlers(false);
+
+        // read the recorded game
+        int[] dealOrder = new int[1024];
+        int deals = 0, count = 0, playerCount = 0;
+        Journal.Type[] types = new Journal.Type[1024];
+        long[] times = new long[1024];
+        int[] eventPlayers = new int[1024], slots = new int[1024], cards = new int[1024], dealtBefore = new int[1024];
+        long firstNanos = -1, lastNanos = 0;
+        boolean firstReshuffle = true;
+        try (JournalReader reader = new JournalReader(Paths.get(args[0]))) {
+            while (reader.next()) {
+                if (firstNanos < 0)
+                    firstNanos = reader.nanos();
+                lastNanos = reader.nanos();
+                if (reader.type() == Journal.Type.CARD_PLACED) {
+                    if (deals == dealOrder.length)
+                        dealOrder = Arrays.copyOf(dealOrder, deals * 2);
+                    dealOrder[deals++] = reader.value();
+                    continue;
+                }
+                if (reader.type() == Journal.Type.RESHUFFLE && firstReshuffle) {
+                    firstReshuffle = false; // the first deal is done by the dealer anyway
+                    continue;
+                }
+                if (reader.type() != Journal.Type.KEY_PRESSED && reader.type() != Journal.Type.CLAIM_VERDICT
+                        && reader.type() != Journal.Type.RESHUFFLE)
+                    continue;
+                if (count == types.length) {
+                    types = Arrays.copyOf(types, count * 2);
+                    times = Arrays.copyOf(times, count * 2);
+                    eventPlayers = Arrays.copyOf(eventPlayers, count * 2);
+                    slots = Arrays.copyOf(slots, count * 2);
+                    cards = Arrays.copyOf(cards, count * 2);
+                    dealtBefore = Arrays.copyOf(dealtBefore, count * 2);
+                }
+                types[count] = reader.type();
+                times[count] = reader.nanos() - firstNanos;
+                eventPlayers[count] = reader.player();
+                slots[count] = reader.slot();
+                cards[count] = reader.value();
+                dealtBefore[count] = deals;
+                playerCount = Math.max(playerCount, reader.player() + 1);
+                count++;
+            }
+        }
+
+        // create the game: all the players are "human", their keys are pressed by the replay
+        Properties properties = Config.loadProperties(configFilename, logger);
+        properties.setProperty("HumanPlayers", Integer.toString(Math.max(playerCount,
+                Integer.parseInt(properties.getProperty("HumanPlayers", "2"))
+                        + Integer.parseInt(properties.getProperty("ComputerPlayers", "0")))));
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("Hints", "False");
+        properties.setProperty("Journal", "False");
+        properties.setProperty("TurnTimeoutSeconds", "-1");
+        if (fast) {
+            properties.setProperty("PointFreezeSeconds", "0");
+            properties.setProperty("PenaltyFreezeSeconds", "0");
+            properties.setProperty("TableDelaySeconds", "0");
+        }
+        Config config = new Config(logger, properties);
+        Util util = config.packedCards ? new PackedUtilImpl(config) : new UtilImpl(config);
+
+        Player[] players = new Player[config.players];
+        UserInterface ui = new NullUserInterface();
+        if (!headless)
+            try {
+                ui = new UserInterfaceSwing(logger, config, players);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                System.out.println("cannot create the swing user interface, replaying headless.");
+            }
+        Env env = new Env(logger, config, ui, util);
+        Table table = new Table(env);
+        Script script = new Script(Arrays.copyOf(dealOrder, deals));
+        Dealer dealer = new Dealer(env, table, players, script);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true);
+
+        System.out.println("replaying " + count + " events of " + playerCount + " players ("
+                + (fast ? "as fast as possible" : "at the original speed") + ").");
+        Thread dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        Replay replay = new Replay(dealer, script, table, players, types, times, eventPlayers, slots, cards,
+                dealtBefore, count);
+        long start = System.nanoTime();
+        replay.run(fast);
+        dealer.terminate();
+        dealerThread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(replay.report(seconds, (lastNanos - firstNanos) / 1e9, env.stats));
+        ui.dispose();
+    }
+
+    /**
+     * Feeds the recorded events to the game.
+     *
+     * @param fast - true to replay as fast as possible, false to keep the original timing.
+     */
+    private void run(boolean fast) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long phaseStart = System.nanoTime();
+            if (!fast) {
+                long wait;
+                while ((wait = start + times[i] - System.nanoTime()) > 0)
+                    LockSupport.parkNanos(wait);
+                waitingNanos += System.nanoTime() - phaseStart;
+                phaseStart = System.nanoTime();
+            }
+
+            if (types[i] == Journal.Type.RESHUFFLE) {
+                script.reshuffles.incrementAndGet();
+                dealer.wakeUp();
+                continue;
+            }
+
+            Player player = players[eventPlayers[i]];
+            if (types[i] == Journal.Type.CLAIM_VERDICT) {
+                check(player, phaseStart);
+                continue;
+            }
+
+            // wait for the dealer to deal the cards it had dealt when the key was pressed (the player carries out its
+            // presses in order, and the presses that follow a claim are queued until its verdict)
+            long deadline = phaseStart + SYNC_TIMEOUT_NANOS;
+            while (script.dealt < dealtBefore[i] && divergedAt < 0 && System.nanoTime() < deadline)
+                LockSupport.parkNanos(10_000);
+            if (script.dealt < dealtBefore[i] && divergedAt < 0)
+                divergedAt = i; // a recorded set was not claimed, so the dealer will not catch up
+            long pressStart = System.nanoTime();
+            if (i > 0 && types[i - 1] == Journal.Type.RESHUFFLE)
+                reshufflingNanos += pressStart - phaseStart;
+            else
+                dealingNanos += pressStart - phaseStart;
+
+            // the key is pressed on the recorded card, wherever it is (the original dealer may have removed several
+            // sets in one batch, and so filled the slots in another order); a key pressed on another card would send
+            // the game further away from the recorded one
+            Integer slot = table.getSlot(cards[i]);
+            if (slot == null) {
+                divergences++;
+                continue;
+            }
+            if (slot != slots[i])
+                moved++;
+            player.keyPressed(slot);
+            pressingNanos += System.nanoTime() - pressStart;
+        }
+    }
+
+    /**
+     * Has the dealer check a player's claim, once the player made it, and waits for the dealer to take it (so the
+     * claims are checked in the recorded order; the key presses that follow the verdict in the journal wait for the
+     * cards dealt after it).
+     */
+    private void check(Player player, long phaseStart) {
+        long deadline = phaseStart + SYNC_TIMEOUT_NANOS;
+        while (!table.hasClaim(player.id) && System.nanoTime() < deadline)
+            LockSupport.parkNanos(10_000);
+        if (!table.hasClaim(player.id)) {
+            divergences++;
+            return;
+        }
+        long checkStart = System.nanoTime();
+        dealingNanos += checkStart - phaseStart;
+        dealer.checkClaim(player.id);
+        while (table.hasClaim(player.id) && System.nanoTime() < checkStart + SYNC_TIMEOUT_NANOS)
+            LockSupport.parkNanos(10_000);
+        checkingNanos += System.nanoTime() - checkStart;
+    }
+
+    private String report(double seconds, double originalSeconds, GameStats stats) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("replayed in %.3fs (the original game took %.3fs)%n", seconds, originalSeconds));
+        report.append(String.format("waiting for the original timing: %.3fs%n", waitingNanos / 1e9));
+        report.append(String.format("waiting for the dealer and the players: %.3fs%n", dealingNanos / 1e9));
+        report.append(String.format("waiting for reshuffles: %.3fs%n", reshufflingNanos / 1e9));
+        report.append(String.format("pressing keys: %.3fs%n", pressingNanos / 1e9));
+        report.append(String.format("checking claims: %.3fs%n", checkingNanos / 1e9));
+        report.append(String.format("claims: %d, latency p50 %dus p99 %dus max %dus, sets: %d%n", stats.claims(),
+                stats.claimLatencyMicros(50), stats.claimLatencyMicros(99), stats.claimLatencyMicros(100),
+                stats.sets()));
+        report.append(String.format("key presses on a card in another slot: %d%n", moved));
+        report.append(String.format("divergences: %d (skipped key presses on a card that was not on the table, "
+                + "and claims that were not made)%n", divergences));
+        if (divergedAt >= 0)
+            report.append(String.format("the dealer did not catch up with the recorded game from event %d of %d%n",
+                    divergedAt, count));
+        return report.toString();
+    }
+}
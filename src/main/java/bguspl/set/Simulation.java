@@ -0,0 +1,114 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class contains the main function of the headless simulation: it runs many complete games of computer players
+ * in parallel, with no user interface, no logging and no delays, and prints aggregated statistics.
+ * <p>
+ * Usage: Simulation [games [parallel games [configuration file]]]
+ * <p>
+ * The configuration file (config.properties format) may set the players and computer strategy properties. The
+ * delays are always disabled: freezes are 0, and there is no turn timeout (the dealer reshuffles as soon as there
+ * is no legal set on the table).
+ * <p>
+ * Note: time is not virtualized. The games run on the wall clock, and they are fast only because those delays are
+ * removed, which also removes the game rules that depend on them (the freeze penalties and the turn timeout). The
+ * computer players still check the table every few milliseconds, and a configured ComputerReactionSeconds is spent
+ * in real time. So this measures the game engine and the strategies' set finding, not the outcome of games played
+ * with the real timing rules.
+ */
+public class Simulation {
+
+    /**
+     * The game's main function. Runs the games and prints the statistics.
+     *
+     * @param args - the number of games (default 1000), the number of games to run in parallel (default the number
+     *             of processors) and the configuration file (default none).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String configFilename = args.length > 2 ? args[2] : null;
+
+        Logger logger = Logger.getLogger("SetSimulationLogger");
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+
+        Config config = new Config(logger, simulationProperties(configFilename));
+        Util util = config.packedCards ? new PackedUtilImpl(config) : new UtilImpl(config);
+        GameStats stats = new GameStats(config.players);
+
+        System.out.println("running " + games + " games of " + config.players + " " + config.computerStrategy
+                + " computer players, " + parallelism + " in parallel (seed " + config.seed + ").");
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        long start = System.nanoTime();
+        SplittableRandom seeds = new SplittableRandom(config.seed);
+        for (int i = 0; i < games; i++) {
+            long seed = seeds.nextLong();
+            executor.execute(() -> runGame(logger, config, util, stats, seed));
+        }
+        executor.shutdown();
+        //noinspection ResultOfMethodCallIgnored
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(stats.report(seconds));
+    }
+
+    /**
+     * Runs a complete game on the calling thread (which acts as the dealer thread). The game's seed is derived from
+     * config.seed and the game's index, so a game can be reproduced.
+     */
+    private static void runGame(Logger logger, Config config, Util util, GameStats stats, long seed) {
+        Player[] players = new Player[config.players];
+        Env env = new Env(logger, config, new NullUserInterface(), util, stats, seed);
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        dealer.run();
+        stats.recordGame();
+    }
+
+    /**
+     * Loads the configuration file (if any) on top of the simulation defaults, and disables the human players and
+     * all the delays.
+     */
+    private static Properties simulationProperties(String filename) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("ComputerPlayers", "4");
+        properties.setProperty("ComputerStrategy", "solver");
+        properties.setProperty("ComputerReactionSeconds", "0");
+        properties.setProperty("VirtualThreads", "True");
+        if (filename != null)
+            try (InputStream is = Files.newInputStream(Paths.get(filename))) {
+                properties.load(is);
+            }
+
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("Hints", "False");
+        properties.setProperty("TurnTimeoutSeconds", "-1");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        return properties;
+    }
+}
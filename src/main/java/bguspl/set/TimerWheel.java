@@ -0,0 +1,214 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timer wheel: a single timer thread runs all the scheduled tasks of the game (freeze expiry, countdown
+ * display ticks etc.) with a resolution of one tick. Tasks run on the timer thread and must be short.
+ * The timer thread is started on the first schedule, sleeps until the tick of the next scheduled task (it does not
+ * wake up on the ticks in between) and is idle (parked) while there is nothing scheduled.
+ */
+public class TimerWheel {
+
+    /**
+     * The default tick duration in milliseconds.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * A scheduled task.
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the task (has no effect if the task already ran).
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * The tasks that expire on the ticks of one slot of the wheel.
+     */
+    private static final class Bucket {
+        private final List<Timeout> timeouts = new ArrayList<>();
+    }
+
+    private final Logger logger;
+    private final long tickNanos;
+
+    /**
+     * The buckets of the wheel (a power of 2 in size, touched by the timer thread only).
+     */
+    private final Bucket[] wheel;
+    private final int mask;
+
+    /**
+     * Newly scheduled tasks, moved into the wheel by the timer thread on its next tick.
+     */
+    private final Queue<Timeout> pending;
+
+    /**
+     * The number of tasks in the wheel (touched by the timer thread only).
+     */
+    private int scheduled;
+
+    /**
+     * The start time of tick 0 and the next tick to process (the ticks before it were processed or had no tasks).
+     */
+    private long startNanos;
+    private long tick;
+
+    private volatile Thread thread;
+    private volatile boolean stopped;
+
+    public TimerWheel(Logger logger, long tickMillis, int wheelSize) {
+        this.logger = logger;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++)
+            wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.pending = new ConcurrentLinkedQueue<>();
+    }
+
+    public TimerWheel(Logger logger) {
+        this(logger, DEFAULT_TICK_MILLIS, 512);
+    }
+
+    /**
+     * Schedules a task to run once after the given delay (rounded up to the next tick).
+     *
+     * @param task        - the task to run on the timer thread.
+     * @param delayMillis - the delay in milliseconds.
+     * @return - the scheduled timeout (may be used to cancel it).
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+        pending.add(timeout);
+        Thread timer = thread;
+        if (timer == null)
+            start();
+        else
+            LockSupport.unpark(timer);
+        return timeout;
+    }
+
+    private synchronized void start() {
+        if (thread != null) {
+            LockSupport.unpark(thread); // started concurrently, make sure it sees the new task
+            return;
+        }
+        if (stopped)
+            return;
+        Thread timer = new Thread(this::run, "timer");
+        timer.setDaemon(true);
+        thread = timer;
+        timer.start();
+    }
+
+    /**
+     * Stops the timer thread (tasks that did not run yet are dropped).
+     */
+    public void shutdown() {
+        stopped = true;
+        Thread timer = thread;
+        if (timer != null) {
+            LockSupport.unpark(timer);
+            try {
+                timer.join();
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    private void run() {
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        startNanos = System.nanoTime();
+        while (!stopped) {
+            if (scheduled == 0 && pending.isEmpty()) {
+                // nothing to do: sleep until a task is scheduled and restart counting ticks from now
+                LockSupport.park(this);
+                startNanos = System.nanoTime() - tick * tickNanos;
+                continue;
+            }
+
+            transferPending();
+            if (scheduled == 0)
+                continue; // all the new tasks were cancelled
+
+            long next = nextBusyTick();
+            long tickEnd = startNanos + (next + 1) * tickNanos;
+            long sleep = tickEnd - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue; // woken up early (by a schedule or spuriously)
+            }
+
+            expire(wheel[(int) (next & mask)], tickEnd);
+            tick = next + 1;
+        }
+        ThreadLogger.logStop(logger, Thread.currentThread().getName());
+    }
+
+    private void transferPending() {
+        for (Timeout timeout = pending.poll(); timeout != null; timeout = pending.poll()) {
+            if (timeout.cancelled)
+                continue;
+            long expireTick = Math.max((timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1, tick);
+            timeout.remainingRounds = (expireTick - tick) / wheel.length;
+            wheel[(int) (expireTick & mask)].timeouts.add(timeout);
+            scheduled++;
+        }
+    }
+
+    /**
+     * @return - the first tick (from the next tick to process) whose bucket has tasks (there must be some).
+     */
+    private long nextBusyTick() {
+        long next = tick;
+        while (wheel[(int) (next & mask)].timeouts.isEmpty())
+            next++;
+        return next;
+    }
+
+    private void expire(Bucket bucket, long tickEnd) {
+        Iterator<Timeout> it = bucket.timeouts.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+                scheduled--;
+            } else if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= tickEnd) {
+                it.remove();
+                scheduled--;
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.severe("timer task failed: " + e);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+}
@@ -4,10 +4,19 @@ import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import javax.imageio.ImageIO;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -15,6 +24,10 @@ import static java.lang.String.format;
 
 /**
  * Java Swing implementation of the UserInterface interface.
+ * <p>
+ * The game threads never touch the Swing components: every call posts a display change to a lock-free queue, and a
+ * single pass on the event dispatch thread (one per frame, scheduled by the first change posted after the previous
+ * pass) applies all the pending changes and then repaints only the table cells they changed.
  */
 public class UserInterfaceSwing extends JFrame implements UserInterface {
 
@@ -24,15 +37,43 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final WinnerPanel winnerPanel;
     private final Config config;
 
+    /**
+     * The time at which the last scheduled card animation is shown (guarded by this).
+     */
+    private long lastCardAnimationMillis;
+
+    /**
+     * For each slot, the last card change scheduled on it and not shown yet, or null (guarded by this).
+     */
+    private final transient CardAnimation[] slotAnimations;
+
+    /**
+     * The display changes posted by the game threads, not yet applied.
+     */
+    private final Queue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * True iff a frame pass is scheduled on the event dispatch thread and has not started yet.
+     */
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+
     static String intInBaseToPaddedString(int n, int padding, int base) {
-        return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
+        String digits = Integer.toString(n, base);
+        int zeros = padding - digits.length();
+        if (zeros <= 0)
+            return digits;
+        char[] padded = new char[padding];
+        Arrays.fill(padded, 0, zeros, '0');
+        digits.getChars(0, digits.length(), padded, zeros);
+        return new String(padded);
     }
 
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
 
         this.config = config;
+        slotAnimations = new CardAnimation[config.tableSize];
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(logger);
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
 
@@ -102,35 +143,97 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
+        /**
+         * All the card images (and the empty card image, last), scaled to the cell size once and laid out as
+         * sprites in a single image that Java2D can keep in video memory.
+         */
+        private final BufferedImage atlas;
+        private final int atlasColumns;
+        private final int emptyCard;
+
+        /**
+         * The card images being decoded and scaled in the background. A card's image is drawn into the atlas once
+         * it is decoded after the card is first placed, and the card is shown as an empty card until then.
+         */
+        private final CardSprites sprites;
+        private final boolean[] spriteDrawn;
+
+        /**
+         * The sprite in each cell.
+         */
+        private final int[][] grid;
         private final JLabel[][] tokenText;
 
-        private Image loadImageResource(String filename) {
+        /**
+         * The players with a token in each slot, and whether the slot's token text must be rebuilt (the text is
+         * rebuilt once per frame at most, only for the slots whose tokens changed).
+         */
+        private final BitSet[] slotTokens;
+        private final boolean[] tokenTextStale;
+        private final StringBuilder tokenTextBuilder = new StringBuilder();
+
+        /**
+         * The slots changed since the last frame (event dispatch thread only).
+         */
+        private final boolean[] dirty;
+        private final int[] dirtySlots;
+        private int dirtyCount;
+
+        private URL imageResource(String filename) {
             URL imageResource = getClass().getClassLoader().getResource(filename);
             if (imageResource == null)
                 throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
+            return imageResource;
+        }
+
+        /**
+         * Decodes an image, scaled to the cell size (thread safe).
+         */
+        private BufferedImage loadSprite(URL imageResource) {
+            try {
+                BufferedImage image = ImageIO.read(imageResource);
+                if (image == null)
+                    throw new IOException("unsupported image format: " + imageResource);
+                BufferedImage sprite = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = sprite.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, config.cellWidth, config.cellHeight, null);
+                g.dispose();
+                return sprite;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
 
-        private GamePanel() {
+        private GamePanel(Logger logger) {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
             // init deck and load all pictures from png files
             assert config.featureSize < 10; // otherwise there will be naming conflicts
 
-            // load the image resources
-            deck = new Image[config.deckSize];
+            // start decoding the card images in the background (only the empty card is needed right away)
+            URL[] imageResources = new URL[config.deckSize];
             for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
-
-            grid = new Image[config.rows][config.columns];
+                imageResources[i] = imageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
+            BufferedImage emptySprite = loadSprite(imageResource("cards/empty_card.png"));
+            sprites = new CardSprites(logger, config.deckSize, card -> loadSprite(imageResources[card]), emptySprite);
+            emptyCard = config.deckSize;
+            atlasColumns = (int) Math.ceil(Math.sqrt(config.deckSize + 1));
+            atlas = createAtlasImage(atlasColumns * config.cellWidth,
+                    (config.deckSize / atlasColumns + 1) * config.cellHeight);
+            drawSprite(emptyCard, emptySprite);
+            spriteDrawn = new boolean[config.deckSize + 1];
+            spriteDrawn[emptyCard] = true;
+
+            dirty = new boolean[config.tableSize];
+            dirtySlots = new int[config.tableSize];
+            grid = new int[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
+            slotTokens = new BitSet[config.tableSize];
+            for (int slot = 0; slot < config.tableSize; slot++)
+                slotTokens[slot] = new BitSet(config.players);
+            tokenTextStale = new boolean[config.tableSize];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
@@ -148,67 +251,141 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
+        /**
+         * @return - an image in the screen's format (so drawing it needs no conversion and can be accelerated).
+         */
+        private BufferedImage createAtlasImage(int width, int height) {
+            if (GraphicsEnvironment.isHeadless())
+                return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                    .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+
+        private void drawSprite(int sprite, BufferedImage image) {
+            Graphics2D atlasGraphics = atlas.createGraphics();
+            atlasGraphics.drawImage(image, sprite % atlasColumns * config.cellWidth,
+                    sprite / atlasColumns * config.cellHeight, null);
+            atlasGraphics.dispose();
+        }
+
         private void placeCard(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            if (!spriteDrawn[card])
+                drawDecodedSprite(card);
+            grid[row][column] = card;
+            markDirty(slot);
+        }
+
+        /**
+         * Draws a card's image into the atlas if it is decoded, otherwise does so (and repaints the card) in the
+         * first frame after it is decoded.
+         */
+        private void drawDecodedSprite(int card) {
+            BufferedImage sprite = sprites.take(card, () -> post(() -> spriteDecoded(card)));
+            if (sprite != null) {
+                drawSprite(card, sprite);
+                spriteDrawn[card] = true;
+            }
+        }
+
+        private void spriteDecoded(int card) {
+            drawDecodedSprite(card);
+            for (int slot = 0; slot < config.tableSize; slot++)
+                if (grid[slot / config.columns][slot % config.columns] == card)
+                    markDirty(slot);
         }
 
         private void removeCard(int slot) {
             int row = slot / config.columns;
             int column = slot % config.columns;
             grid[row][column] = emptyCard;
-            validate();
-            repaint();
+            markDirty(slot);
         }
 
         private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
+            slotTokens[slot].set(player);
+            tokensChanged(slot);
         }
 
         private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
+            if (slotTokens[slot].isEmpty())
+                return;
+            slotTokens[slot].clear();
+            tokensChanged(slot);
         }
 
         private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            if (!slotTokens[slot].get(player))
+                return;
+            slotTokens[slot].clear(player);
+            tokensChanged(slot);
         }
 
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
+        private void tokensChanged(int slot) {
+            tokenTextStale[slot] = true;
+            markDirty(slot);
+        }
+
+        private void markDirty(int slot) {
+            if (!dirty[slot]) {
+                dirty[slot] = true;
+                dirtySlots[dirtyCount++] = slot;
             }
-            if (text.length() < 2)
+        }
+
+        /**
+         * Updates the token text and repaints the card of each slot changed since the last frame (a slot is
+         * updated once per frame, however many times it changed).
+         */
+        private void renderDirtyCells() {
+            for (int i = 0; i < dirtyCount; i++) {
+                int slot = dirtySlots[i];
+                int row = slot / config.columns;
+                int column = slot % config.columns;
+                dirty[slot] = false;
+                if (tokenTextStale[slot]) {
+                    tokenTextStale[slot] = false;
+                    tokenText[row][column].setText(generatePlayersTokenText(slot));
+                }
+                repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
+            }
+            dirtyCount = 0;
+        }
+
+        private String generatePlayersTokenText(int slot) {
+            BitSet players = slotTokens[slot];
+            if (players.isEmpty())
                 return "";
-            return text.substring(0, text.length() - 2);
+            tokenTextBuilder.setLength(0);
+            for (int player = players.nextSetBit(0); player >= 0; player = players.nextSetBit(player + 1)) {
+                if (tokenTextBuilder.length() > 0)
+                    tokenTextBuilder.append(", ");
+                tokenTextBuilder.append(config.playerNames[player]);
+            }
+            return tokenTextBuilder.toString();
         }
 
         @Override
         public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            // draw the card images of the cells in the repainted region only
+            Rectangle clip = g.getClipBounds();
+            if (clip == null)
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            int firstRow = Math.max(0, clip.y / config.cellHeight);
+            int lastRow = Math.min(config.rows - 1, (clip.y + clip.height - 1) / config.cellHeight);
+            int firstColumn = Math.max(0, clip.x / config.cellWidth);
+            int lastColumn = Math.min(config.columns - 1, (clip.x + clip.width - 1) / config.cellWidth);
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int sprite = spriteDrawn[grid[row][column]] ? grid[row][column] : emptyCard;
+                    int x = column * config.cellWidth;
+                    int y = row * config.cellHeight;
+                    int spriteX = sprite % atlasColumns * config.cellWidth;
+                    int spriteY = sprite / atlasColumns * config.cellHeight;
+                    g.drawImage(atlas, x, y, x + config.cellWidth, y + config.cellHeight,
+                            spriteX, spriteY, spriteX + config.cellWidth, spriteY + config.cellHeight, null);
+                }
         }
     }
 
@@ -274,65 +451,149 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
     }
 
+    /**
+     * A card change waiting for its turn to be shown, and the token changes of the same slot made after it (which
+     * are shown right after it, so tokens are never drawn on or cleared from the previous card of the slot).
+     */
+    private class CardAnimation {
+        private final int slot;
+        private final Runnable update;
+        private final List<Runnable> tokenUpdates = new ArrayList<>();
+
+        private CardAnimation(int slot, Runnable update) {
+            this.slot = slot;
+            this.update = update;
+        }
+
+        private void show() {
+            synchronized (UserInterfaceSwing.this) {
+                if (slotAnimations[slot] == this)
+                    slotAnimations[slot] = null;
+                post(update);
+                tokenUpdates.forEach(UserInterfaceSwing.this::post);
+            }
+        }
+    }
+
+    /**
+     * Shows a card change on the screen config.tableDelayMillis after the previous card change, without blocking
+     * the calling game thread (the table state itself is already updated).
+     *
+     * @param slot   - the slot of the card.
+     * @param update - the card change to draw.
+     */
+    private synchronized void animateCard(int slot, Runnable update) {
+        if (config.tableDelayMillis <= 0) {
+            post(update);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastCardAnimationMillis = Math.max(now, lastCardAnimationMillis) + config.tableDelayMillis;
+        CardAnimation animation = new CardAnimation(slot, update);
+        slotAnimations[slot] = animation;
+        Timer timer = new Timer((int) (lastCardAnimationMillis - now), e -> animation.show());
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    /**
+     * Shows a token change on the screen right after the card changes of its slot that are not shown yet (or in the
+     * next frame, if there are none).
+     *
+     * @param slot   - the slot of the token.
+     * @param update - the token change to draw.
+     */
+    private synchronized void animateToken(int slot, Runnable update) {
+        CardAnimation pending = slotAnimations[slot];
+        if (pending != null)
+            pending.tokenUpdates.add(update);
+        else
+            post(update);
+    }
+
+    /**
+     * Posts a display change, to be applied on the event dispatch thread in the next frame.
+     *
+     * @param change - the change, touching only the Swing components and the panels' state.
+     */
+    private void post(Runnable change) {
+        pendingChanges.add(change);
+        if (frameScheduled.compareAndSet(false, true))
+            EventQueue.invokeLater(this::renderFrame);
+    }
+
+    /**
+     * Applies all the pending display changes and repaints the changed table cells (event dispatch thread).
+     */
+    private void renderFrame() {
+        frameScheduled.set(false); // changes posted from now on schedule the next frame
+        for (Runnable change = pendingChanges.poll(); change != null; change = pendingChanges.poll())
+            change.run();
+        gamePanel.renderDirtyCells();
+    }
+
     @Override
     public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
+        animateCard(slot, () -> gamePanel.placeCard(slot, card));
     }
 
     @Override
     public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
+        animateCard(slot, () -> gamePanel.removeCard(slot));
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
+        animateToken(slot, () -> gamePanel.placeToken(player, slot));
     }
 
     @Override
     public void removeTokens() {
-        gamePanel.removeTokens();
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
     }
 
     @Override
     public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
+        animateToken(slot, () -> gamePanel.removeTokens(slot));
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
+        animateToken(slot, () -> gamePanel.removeToken(player, slot));
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
+        post(() -> timerPanel.setCountdown(millies, warn));
     }
 
     @Override
     public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
+        post(() -> timerPanel.setElapsed(millies));
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        post(() -> playersPanel.setFreeze(player, millies));
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        post(() -> playersPanel.setScore(player, score));
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
+        post(() -> {
+            playersPanel.setVisible(false);
+            winnerPanel.announceWinner(players);
+            winnerPanel.setVisible(true);
+        });
     }
 
     @Override
     public void dispose() {
-        super.dispose();
+        post(super::dispose);
     }
 }
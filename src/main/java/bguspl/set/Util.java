@@ -40,6 +40,14 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Computes the only card that completes a legal set of the given cards (config.featureSize must be at least 3).
+     *
+     * @param cards - config.featureSize - 1 different cards.
+     * @return - the card id that completes the set, or -1 if no card can complete it.
+     */
+    int completeSet(int[] cards);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
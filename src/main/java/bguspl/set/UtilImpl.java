@@ -3,18 +3,33 @@ package bguspl.set;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
+import java.util.SplittableRandom;
 
 /**
  * The implementation of the UserInterface interface.
  */
 public class UtilImpl implements Util {
 
-    private final Config config;
+    protected final Config config;
+
+    /**
+     * The decoded features of every card in the deck (computed once, shared and read-only).
+     */
+    private final int[][] cardFeatures;
+
+    /**
+     * The random generator of Util::spin, one per thread, seeded with config.seed and the thread's name (so a thread
+     * of the same name spins the same cycles in every run with the same seed).
+     */
+    private final ThreadLocal<SplittableRandom> spinRandom;
 
     public UtilImpl(Config config) {
         this.config = config;
+        spinRandom = ThreadLocal.withInitial(() ->
+                new SplittableRandom(config.seed + 0x9E3779B97F4A7C15L * Thread.currentThread().getName().hashCode()));
+        cardFeatures = new int[config.deckSize][config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            cardToFeatures(card, cardFeatures[card]);
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -24,37 +39,42 @@ public class UtilImpl implements Util {
         }
     }
 
+    /**
+     * Note: the returned array is shared by all callers and must not be modified.
+     */
     @Override
     public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
+        return cardFeatures[card];
     }
 
+    /**
+     * Note: the returned feature arrays are shared by all callers and must not be modified.
+     */
     @Override
     public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        int[][] features = new int[cards.length][];
+        for (int i = 0; i < cards.length; ++i)
+            features[i] = cardFeatures[cards[i]];
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
+            int first = cardFeatures[cards[0]][i];
+            for (int j = 1; j < cards.length; ++j)
+                if (first != cardFeatures[cards[j]][i]) {
                     sameSame = false;
                     break;
                 }
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 1; j < cards.length && butDifferent; ++j)
+                for (int k = j; k < cards.length; ++k)
+                    if (cardFeatures[cards[j - 1]][i] == cardFeatures[cards[k]][i]) {
                         butDifferent = false;
                         break;
                     }
@@ -64,8 +84,85 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    /**
+     * For every feature the missing value is the common value if all the given cards share it, or the single unused
+     * value if they are all different.
+     */
+    @Override
+    public int completeSet(int[] cards) {
+        int allValues = (1 << config.featureSize) - 1;
+        int last = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            int seen = 0;
+            boolean sameSame = true;
+            int first = cardFeatures[cards[0]][i];
+            for (int card : cards) {
+                if (cardFeatures[card][i] != first) sameSame = false;
+                seen |= 1 << cardFeatures[card][i];
+            }
+
+            int missing;
+            if (sameSame) missing = first;
+            else if (Integer.bitCount(seen) == cards.length) missing = Integer.numberOfTrailingZeros(allValues & ~seen);
+            else return -1;
+
+            last = last * config.featureSize + missing;
+        }
+        return last;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        int n = deck.size();
+        int r = config.featureSize;
+        if (r < 3) return findSetsByCombinations(deck, count);
+
+        LinkedList<int[]> sets = new LinkedList<>();
+        if (n < r) return sets;
+
+        // index the cards by their position in the deck, so the completing card is looked up in O(1)
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        int[] position = new int[config.deckSize];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; ++i)
+            position[cards[i]] = i;
+
+        // every combination of r - 1 cards determines the last card of the set (if any)
+        int k = r - 1;
+        int[] combination = new int[k];
+        int[] partial = new int[k];
+
+        for (int i = 0; i < k; ++i)
+            combination[i] = i;
+
+        while (combination[k - 1] < n - 1) {
+            for (int i = 0; i < k; ++i)
+                partial[i] = cards[combination[i]];
+
+            // only accept a completing card positioned after the combination, so each set is found exactly once
+            int last = completeSet(partial);
+            if (last >= 0 && position[last] > combination[k - 1]) {
+                int[] set = Arrays.copyOf(partial, r);
+                set[k] = last;
+                Arrays.sort(set);
+                sets.add(set);
+                if (sets.size() >= count) return sets;
+            }
+
+            // generate next combination in lexicographic order (leaving room for the completing card)
+            int t = k - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < k; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return sets;
+    }
+
+    /**
+     * Finds sets by testing every combination of featureSize cards. Used when the set cannot be completed from its
+     * first featureSize - 1 cards (i.e. featureSize < 3).
+     */
+    private List<int[]> findSetsByCombinations(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
@@ -92,7 +189,7 @@ public class UtilImpl implements Util {
 
     public void spin() {
         if (config.randomSpinMax <= 0) return;
-        long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
+        long cycles = spinRandom.get().nextLong(config.randomSpinMin, config.randomSpinMax);
         for (int i = 0; i < cycles; ++i)
             Thread.yield();
     }
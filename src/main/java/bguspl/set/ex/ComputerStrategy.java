@@ -0,0 +1,20 @@
+package bguspl.set.ex;
+
+/**
+ * The decision making of a computer player: which keys to press next and how long to wait before asking again.
+ */
+public interface ComputerStrategy {
+
+    /**
+     * Chooses the next keys for the computer player to press.
+     *
+     * @param player - the id of the computer player.
+     * @return - the slots to press, in order (may be empty if there is nothing to do right now).
+     */
+    int[] nextKeys(int player);
+
+    /**
+     * @return - the number of milliseconds to wait after pressing the keys before asking for keys again.
+     */
+    long delayMillis();
+}
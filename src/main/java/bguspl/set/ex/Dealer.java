@@ -1,19 +1,92 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.TimerWheel;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.LinkedList;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class manages the dealer's threads and data
  */
 public class Dealer implements Runnable {
 
+    /**
+     * An event that wakes up the dealer thread.
+     */
+    static final class Event {
+
+        enum Type { CLAIM, TICK, SHUTDOWN }
+
+        static final Event TICK = new Event(Type.TICK, -1);
+        static final Event SHUTDOWN = new Event(Type.SHUTDOWN, -1);
+
+        final Type type;
+
+        /**
+         * The id of the claiming player (CLAIM events only).
+         */
+        final int player;
+
+        private Event(Type type, int player) {
+            this.type = type;
+            this.player = player;
+        }
+
+        static Event claim(int player) {
+            return new Event(Type.CLAIM, player);
+        }
+    }
+
+    /**
+     * The dealer's decisions that a replayed game takes from the recorded game instead of the game rules (see
+     * bguspl.set.Replay): which card to deal next, when to check a claim and when to end a round.
+     */
+    public interface Script {
+
+        /**
+         * A normal game: the top card is dealt, every claim is checked as soon as it is made and the rounds end by
+         * the rules.
+         */
+        Script RULES = new Script() {
+            @Override
+            public int nextCard(Deck deck) {
+                return deck.draw();
+            }
+
+            @Override
+            public boolean checkWhenClaimed(int player) {
+                return true;
+            }
+
+            @Override
+            public boolean roundOver(boolean byTheRules) {
+                return byTheRules;
+            }
+        };
+
+        /**
+         * Draws the next card to deal (called by the dealer thread).
+         *
+         * @pre - the deck is not empty.
+         */
+        int nextCard(Deck deck);
+
+        /**
+         * @return - true iff a claim should be checked as soon as it is made (otherwise it waits for checkClaim()).
+         */
+        boolean checkWhenClaimed(int player);
+
+        /**
+         * @param byTheRules - true iff the round is over by the game rules.
+         * @return - true iff the round is over (called by the dealer thread).
+         */
+        boolean roundOver(boolean byTheRules);
+    }
+
     /**
      * The game environment object.
      */
@@ -26,9 +99,14 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
+     */
+    private final Deck deck;
+
+    /**
+     * The dealer's random generator (used by the dealer thread only).
      */
-    private final List<Integer> deck;
+    private final SplittableRandom random;
 
     /**
      * True iff game should be terminated.
@@ -46,16 +124,48 @@ public class Dealer implements Runnable {
 
     private boolean gameWithTimer;
 
+    /**
+     * The events the dealer thread waits for: set claims, timer ticks and shutdown (lock-free, many producers and
+     * the dealer thread as the only consumer).
+     */
+    private final Queue<Event> events;
+
+    /**
+     * The dealer thread (to be unparked when an event is posted).
+     */
+    private volatile Thread dealerThread;
+
+    /**
+     * The player threads (created by the dealer thread).
+     */
+    private final Thread[] playerThreads;
+
+    /**
+     * The source of the dealer's decisions (Script.RULES in a normal game).
+     */
+    private final Script script;
+
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, Script.RULES);
+    }
+
+    /**
+     * @param script - the source of the dealer's decisions (Script.RULES in a normal game).
+     */
+    public Dealer(Env env, Table table, Player[] players, Script script) {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        deck = new Deck(env.config.deckSize);
+        this.random = env.splitRandom();
         this.startLoopTime = 0;
         this.timePassed = 0;
         this.terminate = false;
         this.reshuffleTime = env.config.turnTimeoutMillis;
         gameWithTimer = env.config.turnTimeoutMillis > 0;
+        this.events = new ConcurrentLinkedQueue<>();
+        this.playerThreads = new Thread[players.length];
+        this.script = script;
     }
 
     /**
@@ -63,10 +173,11 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
-        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        env.log.thread("starting.");
+        dealerThread = Thread.currentThread();
         for (Player p : this.players) {
-            Thread playerThread = new Thread(p);
-            playerThread.start();
+            playerThreads[p.id] = env.newThread(p, "player-" + p.id);
+            playerThreads[p.id].start();
         }
         while (!shouldFinish()) {
             placeCardsOnTable();
@@ -84,7 +195,9 @@ public class Dealer implements Runnable {
         }
         announceWinners();
         terminate();
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+        joinPlayerThreads();
+        env.timer.shutdown();
+        env.log.thread("terminated.");
     }
 
     /**
@@ -92,7 +205,7 @@ public class Dealer implements Runnable {
      * not time out.
      */
     private void timerLoop() {
-        while (!terminate && timePassed < reshuffleTime) {
+        while (!terminate && !script.roundOver(timePassed >= reshuffleTime)) {
             sleepUntilWokenOrTimeout();
             updateTimerDisplay(false);
             removeCardsFromTable();
@@ -102,7 +215,7 @@ public class Dealer implements Runnable {
 
     private void NotimerLoop()
     {
-        while (!terminate && !shouldShuffle())
+        while (!terminate && !script.roundOver(shouldShuffle()))
         {
             sleepUntilWokenOrTimeout();
             updateTimerDisplay(false);
@@ -116,42 +229,56 @@ public class Dealer implements Runnable {
      */
     public void terminate() {
         terminate = true;
+        postEvent(Event.SHUTDOWN);
         for (Player p : this.players) {
             p.terminate();
-            p.getPlayerThread().interrupt();
+            Thread playerThread = playerThreads[p.id];
+            if (playerThread != null)
+                playerThread.interrupt();
         }
     }
 
+    /**
+     * Waits for the (terminated) player threads to finish.
+     */
+    private void joinPlayerThreads() {
+        for (Thread playerThread : playerThreads)
+            try {
+                if (playerThread != null)
+                    playerThread.join();
+            } catch (InterruptedException e) {
+                env.log.thread("interrupted.");
+            }
+    }
+
     /**
      * Check if the game should be terminated or the game end conditions are met.
      *
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || env.util.findSets(deck.asList(), 1).size() == 0;
     }
 
     private boolean shouldShuffle() {
-        List<Integer> cards = new LinkedList<>();
-        for(int i =  0 ; i < this.table.slotToCard.length ; i++)
-        {
-            if(this.table.slotToCard[i] != null)
-            {
-                cards.add(this.table.slotToCard[i]);
-            }
-        }
-        return env.util.findSets(cards, 1).size() == 0;
+        return !this.table.hasSet();
     }
     /**
      * Checks if cards should be removed from the table and removes them.
+     * All the pending claims are checked in one batch, in the order they arrived: once a legal set is removed, the
+     * claims of other players sharing its cards are cancelled (their tokens are removed) and skipped.
      */
     private void removeCardsFromTable() {
-        while (!table.getPlayerWith3Tokens().isEmpty()) {
+        for (Event event = events.poll(); event != null; event = events.poll()) {
+            if (event.type != Event.Type.CLAIM || !table.takeClaim(event.player))
+                continue;
             try {
-                int playerId = this.table.getPlayerWith3Tokens().take(); // the player id
-                env.logger.info("thread " + Thread.currentThread().getName() + " checking set for player: " + playerId);
+                int playerId = event.player;
+                env.log.thread("checking set for player: ", playerId);
                 int[] playerSet = this.table.getPlayerSet(playerId); // array of the player cards set
-                if (env.util.testSet(playerSet))
+                boolean legal = env.util.testSet(playerSet);
+                env.journal.claimVerdict(playerId, legal);
+                if (legal)
                 {
                     for (int i = 0; i < playerSet.length; i++)
                     {
@@ -168,11 +295,11 @@ public class Dealer implements Runnable {
                 }
                 this.table.getWaitingPlayersToNotify().add(playerId);
             } catch (InterruptedException e) {
-                env.logger.info("thread " + Thread.currentThread().getName() + " interrupted.");
+                env.log.thread("interrupted.");
             }
-            releaseWaitingPlayers();
-            env.logger.info("thread " + Thread.currentThread().getName() + " cleared all waiting players.");
         }
+        releaseWaitingPlayers();
+        env.log.thread("cleared all waiting players.");
 
     }
 
@@ -200,22 +327,72 @@ public class Dealer implements Runnable {
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some
-     * purpose.
+     * Called by a player thread after it placed its last token of a set, so the dealer checks it.
+     *
+     * @param player - the id of the claiming player.
+     */
+    public void claimSet(int player) {
+        table.addPlayerWith3Tokens(player);
+        if (script.checkWhenClaimed(player))
+            checkClaim(player);
+    }
+
+    /**
+     * Has the dealer thread check a player's pending claim.
+     *
+     * @param player - the id of the claiming player.
+     */
+    public void checkClaim(int player) {
+        postEvent(Event.claim(player));
+    }
+
+    /**
+     * Posts an event to the dealer thread and wakes it up.
+     */
+    private void postEvent(Event event) {
+        events.add(event);
+        Thread thread = dealerThread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Sleep until an event is posted, or until the timer display next changes or the reshuffle deadline is
+     * reached (whichever comes first; the shared timer posts a TICK event then). The events are left in the queue
+     * to be handled by the caller.
      */
     private void sleepUntilWokenOrTimeout() {
-        if(this.table.getPlayerWith3Tokens().isEmpty())
-        {
-            try {
-                synchronized (this.table.getPlayerWith3Tokens()) { 
-                    env.logger.info("thread " + Thread.currentThread().getName() + " want to sleep.");
-                    this.table.getPlayerWith3Tokens().wait(1000);
-                    env.logger.info("thread " + Thread.currentThread().getName() + " woke up.");
-                }
-            } catch (InterruptedException e) {
-                env.logger.info("thread " + Thread.currentThread().getName() + " interrupted.");
-            }
+        long timeout = millisUntilNextTick();
+        if (timeout == 0)
+            return;
+        TimerWheel.Timeout tick = timeout < 0 ? null : env.timer.schedule(() -> postEvent(Event.TICK), timeout);
+        env.log.thread("want to sleep.");
+        while (events.isEmpty() && !terminate) {
+            if (Thread.interrupted())
+                env.log.thread("interrupted.");
+            LockSupport.park(this);
         }
+        if (tick != null)
+            tick.cancel();
+        env.log.thread("woke up.");
+    }
+
+    /**
+     * @return - the number of milliseconds until the displayed time changes (or the countdown reaches 0), or -1 if
+     * no time is displayed.
+     */
+    private long millisUntilNextTick() {
+        long now = System.currentTimeMillis();
+        if (reshuffleTime > 0) {
+            long remaining = startLoopTime + reshuffleTime - now;
+            if (remaining <= 0)
+                return 0;
+            long untilNextSecond = remaining % 1000;
+            return untilNextSecond == 0 ? 1000 : untilNextSecond;
+        }
+        if (reshuffleTime == 0)
+            return 1000 - (now - startLoopTime) % 1000;
+        return -1;
     }
 
     /**
@@ -233,7 +410,7 @@ public class Dealer implements Runnable {
             else
             {
                 timePassed = System.currentTimeMillis() - startLoopTime;
-                env.ui.setCountdown(reshuffleTime - timePassed, false);
+                env.ui.setCountdown(Math.max(0, reshuffleTime - timePassed), false);
             }
         }
         else
@@ -264,7 +441,7 @@ public class Dealer implements Runnable {
                 
             }
         }
-        this.table.getPlayerWith3Tokens().clear();
+        this.table.cancelAllClaims();
         releaseWaitingPlayers();
     }
 
@@ -287,20 +464,29 @@ public class Dealer implements Runnable {
         }
         int[] winnersArray = winners.stream().mapToInt(Integer::intValue).toArray();
         env.ui.announceWinner(winnersArray);
+        env.stats.recordWinners(winnersArray);
     }
 
     /**
      * shuffle the dealer's deck
      */
     private void shuffleDeck() {
-        Collections.shuffle(this.deck);
+        this.deck.shuffle(random);
+        env.journal.reshuffle(deck.size());
     }
 
     /**
-     * takes the first card from the deck
+     * takes the next card from the deck (the top card in a normal game)
      */
     private int takeCard() {
-        return this.deck.remove(0);
+        return script.nextCard(this.deck);
+    }
+
+    /**
+     * Wakes the dealer thread up, so it consults its script again (e.g. whether the round is over).
+     */
+    public void wakeUp() {
+        postEvent(Event.TICK);
     }
 
     private Player findPlayer(int id) {
@@ -316,11 +502,8 @@ public class Dealer implements Runnable {
         while(!this.table.getWaitingPlayersToNotify().isEmpty())
         {
             Player p = findPlayer(this.table.getWaitingPlayersToNotify().removeFirst());
-            synchronized(p.getWaitingUntilDealerCheck())
-            {
-                env.logger.info("thread " + Thread.currentThread().getName() + " waking up player: " + p.id);
-                p.getWaitingUntilDealerCheck().notifyAll();
-            }
+            env.log.thread("waking up player: ", p.id);
+            p.dealerChecked();
         }
     }
 
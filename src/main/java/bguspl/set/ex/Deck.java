@@ -0,0 +1,109 @@
+package bguspl.set.ex;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The dealer's deck, stored as a primitive array of card ids. Cards are drawn from the end of the array.
+ */
+public class Deck {
+
+    /**
+     * The card ids in the deck (only the first size entries are valid).
+     */
+    private final int[] cards;
+
+    /**
+     * The number of cards left in the deck.
+     */
+    private int size;
+
+    /**
+     * A read only list view of the deck (e.g. for Util::findSets).
+     */
+    private final List<Integer> view = new AbstractList<Integer>() {
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("index: " + index + " size: " + size);
+            return cards[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * Creates a full deck with all the cards 0 ... deckSize - 1.
+     *
+     * @param deckSize - the total number of cards.
+     */
+    public Deck(int deckSize) {
+        cards = new int[deckSize];
+        for (int i = 0; i < deckSize; i++)
+            cards[i] = i;
+        size = deckSize;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes and returns the last card in the deck.
+     *
+     * @pre - the deck is not empty.
+     */
+    public int draw() {
+        return cards[--size];
+    }
+
+    /**
+     * Removes a specific card from the deck.
+     *
+     * @param card - the card to remove.
+     * @return - true iff the card was in the deck.
+     */
+    public boolean draw(int card) {
+        for (int i = size - 1; i >= 0; i--)
+            if (cards[i] == card) {
+                cards[i] = cards[--size];
+                return true;
+            }
+        return false;
+    }
+
+    /**
+     * Returns a card to the deck.
+     *
+     * @pre - the card is not already in the deck.
+     */
+    public void add(int card) {
+        cards[size++] = card;
+    }
+
+    /**
+     * Shuffles the cards in place (Fisher-Yates).
+     *
+     * @param random - the random generator to use.
+     */
+    public void shuffle(RandomGenerator random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int card = cards[i];
+            cards[i] = cards[j];
+            cards[j] = card;
+        }
+    }
+
+    public List<Integer> asList() {
+        return view;
+    }
+}
@@ -1,10 +1,12 @@
 package bguspl.set.ex;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
 import bguspl.set.Env;
+import bguspl.set.TimerWheel;
 
 /**
  * This class manages the players' threads and data
@@ -23,6 +25,7 @@ public class Player implements Runnable {
      * Game entities.
      */
     private final Table table;
+    private final Dealer dealer;
 
     /**
      * The id of the player (starting from 0).
@@ -60,9 +63,30 @@ public class Player implements Runnable {
      */
     private BlockingQueue<Integer> actions;
 
-    private long timeToFreeze;
+    /**
+     * The remaining freeze time (set by the dealer when checking the player's set, counted down by the timer).
+     */
+    private volatile long timeToFreeze;
 
-    private Object waitingUntilDealerCheck;
+    /**
+     * The time the current freeze ends at.
+     */
+    private long freezeEndMillis;
+
+    /**
+     * The next scheduled freeze countdown tick (null if none).
+     */
+    private TimerWheel.Timeout freezeTick;
+
+    /**
+     * Released by the dealer once it checked (or cancelled) the player's claimed set.
+     */
+    private final Semaphore dealerCheck;
+
+    /**
+     * The player's random generator (used by the AI thread only).
+     */
+    private final SplittableRandom random;
 
     /**
      * The class constructor.
@@ -77,33 +101,35 @@ public class Player implements Runnable {
     public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
         this.env = env;
         this.table = table;
+        this.dealer = dealer;
         this.id = id;
         this.human = human;
         this.actions = new LinkedBlockingQueue<Integer>(3);
         this.timeToFreeze = 0;
         this.terminate = false;
         this.aiThread = null;
-        this.waitingUntilDealerCheck = new Object();
+        this.dealerCheck = new Semaphore(0);
+        this.random = env.splitRandom();
     }
 
     /**
      * The main player thread of each player starts here (main loop for the player
-     * thread).
+     * thread). The thread blocks until a key is pressed; key presses are ignored
+     * while the player is frozen, and termination interrupts the blocked thread.
      */
     @Override
     public void run() {
         playerThread = Thread.currentThread();
-        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        env.log.thread("starting.");
         if (!human)
             createArtificialIntelligence();
         while(!terminate) {
-            needToFreeze(); // Checks if a player thread needs to sleep (Because of penalty or point)
-            while (timeToFreeze == 0 && !this.actions.isEmpty() && !Thread.currentThread().isInterrupted()) {
-                try {
-                    placeOrRemoveToken(this.actions.take());
-                } catch (InterruptedException e) {
-                    env.logger.info("thread " + Thread.currentThread().getName() + " interrupted");
-                }
+            try {
+                int slot = this.actions.take();
+                if (timeToFreeze == 0) // presses queued before a freeze are dropped
+                    placeOrRemoveToken(slot);
+            } catch (InterruptedException e) {
+                env.log.thread("interrupted");
             }
         }
         if (!human)
@@ -111,33 +137,34 @@ public class Player implements Runnable {
                 aiThread.join();
             } catch (InterruptedException ignored) {
             }
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+        env.log.thread("terminated.");
     }
 
     /**
      * Creates an additional thread for an AI (computer) player. The main loop of
-     * this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it
+     * this thread repeatedly asks the computer strategy (config.computerStrategy)
+     * for key presses. If the queue of key presses is full, the thread waits until it
      * is not full.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        ComputerStrategy strategy = "solver".equals(env.config.computerStrategy)
+                ? new SolverStrategy(env, table, random)
+                : new RandomStrategy(env, random);
+        aiThread = env.newThread(() -> {
+            env.log.thread("starting.");
             while (!terminate) {
-                Random random = new Random();
-                keyPressed(random.nextInt(env.config.tableSize));
                 try {
-                    synchronized (this) {
-                        wait(5);
-                    }
+                    for (int slot : strategy.nextKeys(id))
+                        if (!terminate)
+                            keyPressed(slot);
+                    Thread.sleep(strategy.delayMillis());
                 } 
                 catch (InterruptedException ignored) 
                 {
-                    env.logger.info("thread " + Thread.currentThread().getName() + " interrupted.");
+                    env.log.thread("interrupted.");
                 }
             }
-            env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+            env.log.thread("terminated.");
         }, "computer-" + id);
         aiThread.start();
     }
@@ -152,23 +179,44 @@ public class Player implements Runnable {
         }
     }
 
-    public void needToFreeze() {
-        if (timeToFreeze > 0) {
-            for (long i = timeToFreeze; i > 0 && !terminate; i -= 1000) {
-                try {
-                    env.ui.setFreeze(this.id, i);
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    env.logger.info("thread " + Thread.currentThread().getName() + " interrupted");
-                    this.terminate();
-                }
-            }
-            if(!terminate)
-            {
-                timeToFreeze = 0;
-                env.ui.setFreeze(id, timeToFreeze);
-            }
+    /**
+     * Freezes the player. The freeze countdown is displayed and expired by the shared timer, so no thread sleeps
+     * during the freeze.
+     *
+     * @param millis - the freeze time in milliseconds.
+     */
+    private synchronized void freeze(long millis) {
+        if (millis <= 0)
+            return;
+        if (freezeTick != null)
+            freezeTick.cancel();
+        freezeEndMillis = System.currentTimeMillis() + millis;
+        timeToFreeze = millis;
+        env.journal.freezeStart(this.id, millis);
+        env.ui.setFreeze(this.id, millis);
+        freezeTick = env.timer.schedule(this::freezeTick, millisUntilNextSecond(millis));
+    }
+
+    /**
+     * Updates the freeze countdown display, or ends the freeze if its time is up (runs on the timer thread).
+     */
+    private synchronized void freezeTick() {
+        long remaining = freezeEndMillis - System.currentTimeMillis();
+        if (remaining <= 0 || terminate) {
+            freezeTick = null;
+            timeToFreeze = 0;
+            env.journal.freezeEnd(this.id);
+            env.ui.setFreeze(id, timeToFreeze);
+            return;
         }
+        timeToFreeze = remaining;
+        env.ui.setFreeze(this.id, (remaining + 999) / 1000 * 1000); // whole seconds, as counted down
+        freezeTick = env.timer.schedule(this::freezeTick, millisUntilNextSecond(remaining));
+    }
+
+    private static long millisUntilNextSecond(long remaining) {
+        long untilNextSecond = remaining % 1000;
+        return untilNextSecond == 0 ? 1000 : untilNextSecond;
     }
 
     /**
@@ -181,7 +229,7 @@ public class Player implements Runnable {
             try {
                 this.actions.put(slot);
             } catch (InterruptedException e) {
-                env.logger.info("thread " + Thread.currentThread().getName() + "interrupted");
+                env.log.thread("interrupted");
             }
     }
 
@@ -193,29 +241,37 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void placeOrRemoveToken(int slot) {
-        synchronized(this.table.getSlotLocks()[slot])
+        this.table.getSlotLocks()[slot].lock();
+        try
         {
-            if(this.table.slotToCard[slot] != null && !this.table.removeToken(this.id, slot) && this.table.getCountTokensByPlayer(this.id) != env.config.featureSize)
+            Integer card = this.table.slotToCard[slot];
+            if (card != null)
+                env.journal.keyPressed(this.id, slot, card);
+            if(card != null && !this.table.removeToken(this.id, slot) && this.table.getCountTokensByPlayer(this.id) != env.config.featureSize)
             {
                 this.table.placeToken(id, slot);
             }
         }
+        finally
+        {
+            this.table.getSlotLocks()[slot].unlock();
+        }
         if (this.table.getCountTokensByPlayer(this.id) == env.config.featureSize)
         {
             
-            synchronized(this.waitingUntilDealerCheck)
+            try
             {
-                try
-                {
-                    this.table.addPlayerWith3Tokens(this.id);
-                    env.logger.info("thread " + Thread.currentThread().getName() + " waiting for dealer check");
-                    this.waitingUntilDealerCheck.wait();
-                    env.logger.info("thread " + Thread.currentThread().getName() + " waked up by dealer");
-                }
-                catch (InterruptedException e)
-                {
-                    env.logger.info("thread " + Thread.currentThread().getName() + "interrupted");
-                }
+                long claimTime = System.nanoTime();
+                env.journal.claimSubmitted(this.id);
+                this.dealer.claimSet(this.id);
+                env.log.thread("waiting for dealer check");
+                this.dealerCheck.acquire();
+                env.stats.recordClaim(System.nanoTime() - claimTime);
+                env.log.thread("waked up by dealer");
+            }
+            catch (InterruptedException e)
+            {
+                env.log.thread("interrupted");
             }
         }           
     }
@@ -228,14 +284,15 @@ public class Player implements Runnable {
      */
     public void point() {
         env.ui.setScore(this.id, ++this.score);
-        timeToFreeze = env.config.pointFreezeMillis;
+        env.stats.recordSet();
+        freeze(env.config.pointFreezeMillis);
     }
 
     /**
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        timeToFreeze = env.config.penaltyFreezeMillis;
+        freeze(env.config.penaltyFreezeMillis);
     }
 
     public int score() {
@@ -251,8 +308,11 @@ public class Player implements Runnable {
         return this.playerThread;
     }
 
-    public Object getWaitingUntilDealerCheck()
+    /**
+     * Called by the dealer once it checked (or cancelled) the player's claimed set.
+     */
+    public void dealerChecked()
     {
-        return this.waitingUntilDealerCheck;
+        this.dealerCheck.release();
     }
 }
@@ -0,0 +1,34 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A computer player that presses a random slot every few milliseconds.
+ */
+public class RandomStrategy implements ComputerStrategy {
+
+    /**
+     * The number of milliseconds between key presses.
+     */
+    private static final long KEY_DELAY_MILLIS = 5;
+
+    private final Env env;
+    private final RandomGenerator random;
+
+    public RandomStrategy(Env env, RandomGenerator random) {
+        this.env = env;
+        this.random = random;
+    }
+
+    @Override
+    public int[] nextKeys(int player) {
+        return new int[]{random.nextInt(env.config.tableSize)};
+    }
+
+    @Override
+    public long delayMillis() {
+        return KEY_DELAY_MILLIS;
+    }
+}
@@ -0,0 +1,114 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * A computer player that looks at the cards on the table, finds the legal sets (using Util::findSets) and claims one
+ * of them at random (so computer players do not all race for the same set). It reacts config.computerReactionMillis
+ * after it notices that the cards on the table changed (and decides again every config.computerReactionMillis while
+ * they do not), and with probability config.computerErrorRate it swaps one card of the set for another card on the
+ * table (i.e. it claims an illegal set).
+ */
+public class SolverStrategy implements ComputerStrategy {
+
+    private final Env env;
+    private final Table table;
+    private final RandomGenerator random;
+
+    /**
+     * The time source, in nanoseconds (System::nanoTime outside of tests).
+     */
+    private final LongSupplier nanoClock;
+
+    /**
+     * The shortest time between checks of the table for changes, in milliseconds (so a computer player never spins).
+     */
+    static final long POLL_MILLIS = 5;
+
+    /**
+     * The cards on the table when last checked, and when to decide next (System::nanoTime).
+     */
+    private Integer[] lastSeen;
+    private long decideAtNanos;
+
+    public SolverStrategy(Env env, Table table, RandomGenerator random) {
+        this(env, table, random, System::nanoTime);
+    }
+
+    SolverStrategy(Env env, Table table, RandomGenerator random, LongSupplier nanoClock) {
+        this.env = env;
+        this.table = table;
+        this.random = random;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public int[] nextKeys(int player) {
+        // take a snapshot of the table
+        Integer[] slotToCard = Arrays.copyOf(table.slotToCard, table.slotToCard.length);
+        long now = nanoClock.getAsLong();
+        long reactionNanos = env.config.computerReactionMillis * 1_000_000;
+        if (!Arrays.equals(slotToCard, lastSeen)) {
+            lastSeen = slotToCard;
+            decideAtNanos = now + reactionNanos;
+        }
+        if (now - decideAtNanos < 0)
+            return new int[0];
+        decideAtNanos = now + reactionNanos;
+
+        List<Integer> cards = new ArrayList<>();
+        int[] cardToSlot = new int[env.config.deckSize];
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] != null) {
+                cards.add(slotToCard[slot]);
+                cardToSlot[slotToCard[slot]] = slot;
+            }
+
+        List<int[]> sets = env.util.findSets(cards, Integer.MAX_VALUE);
+        if (sets.isEmpty())
+            return new int[0];
+
+        int[] target = Arrays.stream(sets.get(random.nextInt(sets.size()))).map(card -> cardToSlot[card]).toArray();
+        if (random.nextDouble() < env.config.computerErrorRate && cards.size() > target.length) {
+            int other;
+            do {
+                other = cardToSlot[cards.get(random.nextInt(cards.size()))];
+            } while (contains(target, other));
+            target[random.nextInt(target.length)] = other;
+        }
+
+        // remove the tokens that are not part of the target set, then place the missing ones
+        int[] tokens = table.getPlayerTokens(player);
+        int[] keys = new int[tokens.length + target.length];
+        int count = 0;
+        for (int slot : tokens)
+            if (!contains(target, slot))
+                keys[count++] = slot;
+        for (int slot : target)
+            if (!contains(tokens, slot))
+                keys[count++] = slot;
+        return Arrays.copyOf(keys, count);
+    }
+
+    private static boolean contains(int[] slots, int slot) {
+        for (int s : slots)
+            if (s == slot)
+                return true;
+        return false;
+    }
+
+    /**
+     * @return - the time until the table should be checked for changes: between POLL_MILLIS and twice that, at random
+     * (so the computer players do not check in a fixed order, and the first one to check does not always win).
+     */
+    @Override
+    public long delayMillis() {
+        return POLL_MILLIS + random.nextLong(POLL_MILLIS);
+    }
+}
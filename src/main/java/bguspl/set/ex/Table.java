@@ -2,12 +2,14 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
@@ -33,20 +35,36 @@ public class Table {
     protected final Integer[] cardToSlot; // slot per card (if any)
 
     /**
-     * An array representing the grid of the table and the tokens placed inside by
-     * the ID of the player
+     * The players that have a token on each slot (guarded by the slot's lock).
      */
-    private LinkedList<Integer>[] tokensByPlayersID;
+    private final BitSet[] playersBySlot;
 
     /**
-     * AA BlockingQueue of
+     * The slots each player has a token on (guarded by the bitset itself, as a player's tokens may be removed from
+     * several slots concurrently).
      */
-    private BlockingQueue<Integer> playersWith3Tokens;
+    private final BitSet[] slotsByPlayer;
 
-    public Object[] slotLocks;
+    /**
+     * For each player, 1 iff the player claimed a set that the dealer has not checked or cancelled yet.
+     */
+    private final AtomicIntegerArray pendingClaims;
+
+    /**
+     * A lock per slot, guarding its card and tokens (j.u.c locks rather than monitors, so a virtual thread that
+     * blocks while holding one does not pin its carrier thread).
+     */
+    public ReentrantLock[] slotLocks;
 
     public LinkedList<Integer> waitingPlayersToNotify;
 
+    /**
+     * The legal sets (card ids, sorted) currently on the table, kept up to date by placeCard and removeCard (guarded
+     * by itself), and their number.
+     */
+    private final ArrayList<int[]> setsOnTable;
+    private volatile int setCount;
+
     /**
      * Constructor for testing.
      *
@@ -61,17 +79,22 @@ public class Table {
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        this.tokensByPlayersID = new LinkedList[slotToCard.length];
-        for (int i = 0; i < tokensByPlayersID.length; i++) {
-            this.tokensByPlayersID[i] = new LinkedList<Integer>();
+        this.playersBySlot = new BitSet[slotToCard.length];
+        for (int i = 0; i < playersBySlot.length; i++) {
+            this.playersBySlot[i] = new BitSet(env.config.players);
+        }
+        this.slotsByPlayer = new BitSet[env.config.players];
+        for (int i = 0; i < slotsByPlayer.length; i++) {
+            this.slotsByPlayer[i] = new BitSet(slotToCard.length);
         }
-        playersWith3Tokens = new LinkedBlockingQueue<Integer>();
-        this.slotLocks = new Object[env.config.tableSize];
+        pendingClaims = new AtomicIntegerArray(env.config.players);
+        this.slotLocks = new ReentrantLock[env.config.tableSize];
         for(int i = 0 ; i < this.slotLocks.length ; i ++)
         {
-            slotLocks[i] = new Object();
+            slotLocks[i] = new ReentrantLock();
         }
         this.waitingPlayersToNotify = new LinkedList<>();
+        this.setsOnTable = new ArrayList<>();
     }
 
     /**
@@ -122,22 +145,22 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
+        this.slotLocks[slot].lock();
         try
-        {
-            Thread.sleep(env.config.tableDelayMillis);
-        }
-        catch (InterruptedException ignored)
-        {
-                
-        }
-        synchronized(this.slotLocks[slot])
         {
             env.ui.placeCard(card, slot);
-            env.logger.info("place card to slot: " + cardToSlot[card]);
+            if (slotToCard[slot] != null)
+                removeSetsOf(slotToCard[slot]);
             cardToSlot[card] = slot;
-            env.logger.info("place card to slot: " + cardToSlot[card]);
+            env.log.info("place card to slot: ", slot);
             slotToCard[slot] = card;
-        }        
+            env.journal.cardPlaced(card, slot);
+            addSetsOf(card);
+        }
+        finally
+        {
+            this.slotLocks[slot].unlock();
+        }
     }
 
     /**
@@ -146,20 +169,119 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        try 
-        {
-            Thread.sleep(env.config.tableDelayMillis);
-        } 
-        catch (InterruptedException ignored)
-        {
-            
-        }
-        synchronized(this.slotLocks[slot])
+        this.slotLocks[slot].lock();
+        try
         {
+            if (slotToCard[slot] != null) {
+                removeSetsOf(slotToCard[slot]);
+                env.journal.cardRemoved(slotToCard[slot], slot);
+            }
             slotToCard[slot] = null;
             env.ui.removeCard(slot);
         }
+        finally
+        {
+            this.slotLocks[slot].unlock();
+        }
+
+    }
+
+    /**
+     * Adds to the sets index every legal set the card forms with the other cards on the table: for each combination
+     * of featureSize - 2 other cards, the only card that completes the set is looked up on the table.
+     *
+     * @param card - the card that was placed on the table.
+     */
+    private void addSetsOf(int card) {
+        int r = env.config.featureSize;
+        int[] others = Arrays.stream(slotToCard).filter(Objects::nonNull).mapToInt(Integer::intValue)
+                .filter(other -> other != card).sorted().toArray();
+        if (r < 3) {
+            // a set cannot be completed from its other cards
+            List<Integer> cards = Arrays.stream(others).boxed().collect(Collectors.toList());
+            cards.add(card);
+            for (int[] set : env.util.findSets(cards, Integer.MAX_VALUE))
+                if (Arrays.stream(set).anyMatch(c -> c == card))
+                    addSet(set);
+            return;
+        }
+
+        int k = r - 2;
+        if (others.length < k + 1)
+            return;
+        int[] combination = new int[k];
+        for (int i = 0; i < k; ++i)
+            combination[i] = i;
+
+        int[] partial = new int[r - 1];
+        partial[0] = card;
+        while (combination[k - 1] < others.length) {
+            for (int i = 0; i < k; ++i)
+                partial[i + 1] = others[combination[i]];
+
+            // only accept a completing card above the combination's cards, so each set is added once
+            int last = env.util.completeSet(partial);
+            if (last > partial[k] && getSlot(last) != null) {
+                int[] set = Arrays.copyOf(partial, r);
+                set[r - 1] = last;
+                Arrays.sort(set);
+                addSet(set);
+            }
+
+            // generate next combination in lexicographic order
+            int t = k - 1;
+            while (t != 0 && combination[t] == others.length - k + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < k; i++) combination[i] = combination[i - 1] + 1;
+        }
+    }
+
+    private void addSet(int[] set) {
+        synchronized (setsOnTable) {
+            setsOnTable.add(set);
+            setCount = setsOnTable.size();
+        }
+    }
 
+    /**
+     * Removes from the sets index every set containing the card.
+     *
+     * @param card - the card that is leaving the table.
+     */
+    private void removeSetsOf(int card) {
+        synchronized (setsOnTable) {
+            for (int i = setsOnTable.size() - 1; i >= 0; --i)
+                if (contains(setsOnTable.get(i), card)) {
+                    // the order of the sets does not matter: move the last one into the removed one's place
+                    int[] lastSet = setsOnTable.remove(setsOnTable.size() - 1);
+                    if (i < setsOnTable.size())
+                        setsOnTable.set(i, lastSet);
+                }
+            setCount = setsOnTable.size();
+        }
+    }
+
+    private static boolean contains(int[] set, int card) {
+        for (int c : set)
+            if (c == card)
+                return true;
+        return false;
+    }
+
+    /**
+     * @return - true iff there is at least one legal set on the table.
+     */
+    public boolean hasSet() {
+        return setCount > 0;
+    }
+
+    /**
+     * @return - a copy of all the legal sets currently on the table.
+     */
+    public List<int[]> getSets() {
+        synchronized (setsOnTable) {
+            return new ArrayList<>(setsOnTable);
+        }
     }
 
 
@@ -172,7 +294,11 @@ public class Table {
     public void placeToken(int player, int slot)
     {
         env.ui.placeToken(player, slot);
-        this.tokensByPlayersID[slot].add(player);
+        this.playersBySlot[slot].set(player);
+        synchronized (this.slotsByPlayer[player]) {
+            this.slotsByPlayer[player].set(slot);
+        }
+        env.journal.tokenPlaced(player, slot);
     }
 
     /**
@@ -183,11 +309,14 @@ public class Table {
      * @return - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
-        if (tokensByPlayersID[slot].contains(player)) {
+        if (playersBySlot[slot].get(player)) {
             env.ui.removeToken(player, slot);
-            tokensByPlayersID[slot].remove((Integer) player);
-            if (this.playersWith3Tokens.contains(player)) {
-                this.playersWith3Tokens.remove(player);
+            playersBySlot[slot].clear(player);
+            synchronized (slotsByPlayer[player]) {
+                slotsByPlayer[player].clear(slot);
+            }
+            env.journal.tokenRemoved(player, slot);
+            if (this.pendingClaims.compareAndSet(player, 1, 0)) {
                 this.waitingPlayersToNotify.add(player);
             }
             return true;
@@ -197,66 +326,127 @@ public class Table {
 
 
     public int[] getPlayerSet(int player) throws InterruptedException {
-        int[] playerSet = new int[3];
+        int[] playerSet = new int[env.config.featureSize];
         int card = 0;
-        for (int i = 0; i < this.tokensByPlayersID.length; i++) {
-            if (this.tokensByPlayersID[i].contains(player)) {
-                if(slotToCard[i] == null)
+        synchronized (this.slotsByPlayer[player]) {
+            BitSet slots = this.slotsByPlayer[player];
+            for (int i = slots.nextSetBit(0); i >= 0 && card < playerSet.length; i = slots.nextSetBit(i + 1)) {
+                Integer slotCard = slotToCard[i];
+                if(slotCard == null)
                 {
                     Thread.currentThread().interrupt();
                 }
                 else
                 {
-                    playerSet[card] = slotToCard[i];
+                    playerSet[card] = slotCard;
                     card++;
                 }
-
             }
         }
         return playerSet;
     }
 
-    public BlockingQueue<Integer> getPlayerWith3Tokens() {
-        return playersWith3Tokens;
+    /**
+     * @param slot - the slot.
+     * @return - the card in the slot, or null if the slot is empty.
+     */
+    public Integer getCard(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @param card - the card.
+     * @return - the slot the card is in, or null if the card is not on the table.
+     */
+    public Integer getSlot(int card) {
+        Integer slot = cardToSlot[card]; // left as is when the card is removed
+        return slot != null && Integer.valueOf(card).equals(slotToCard[slot]) ? slot : null;
+    }
+
+    /**
+     * @param player - the player.
+     * @return - the slots on which the player has tokens, in ascending order.
+     */
+    public int[] getPlayerTokens(int player) {
+        synchronized (this.slotsByPlayer[player]) {
+            return this.slotsByPlayer[player].stream().toArray();
+        }
     }
 
     public void addPlayerWith3Tokens(int player) {
-        this.playersWith3Tokens.add(player);
-        synchronized (this.playersWith3Tokens)
-        {
-            this.playersWith3Tokens.notifyAll();
+        this.pendingClaims.set(player, 1);
+    }
+
+    /**
+     * @param player - the player.
+     * @return - true iff the player has a claim waiting to be checked.
+     */
+    public boolean hasClaim(int player) {
+        return this.pendingClaims.get(player) == 1;
+    }
+
+    /**
+     * Takes a player's claim for checking.
+     *
+     * @param player - the claiming player.
+     * @return - true iff the claim was still pending (i.e. it was not cancelled by a token removal).
+     */
+    public boolean takeClaim(int player) {
+        return this.pendingClaims.compareAndSet(player, 1, 0);
+    }
+
+    /**
+     * Cancels all pending claims, adding their players to the players waiting to be notified.
+     */
+    public void cancelAllClaims() {
+        for (int player = 0; player < this.pendingClaims.length(); player++) {
+            if (this.pendingClaims.compareAndSet(player, 1, 0)) {
+                this.waitingPlayersToNotify.add(player);
+            }
         }
     }
 
-    public LinkedList<Integer>[] getTokensByPlayersID() {
-        return this.tokensByPlayersID;
-    }    
+    /**
+     * @param player - the player.
+     * @param slot   - the slot.
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        this.slotLocks[slot].lock();
+        try {
+            return this.playersBySlot[slot].get(player);
+        } finally {
+            this.slotLocks[slot].unlock();
+        }
+    }
 
     // reset all tokens from slot
     public void resetAllTokens(int slot)
     {
-        synchronized(this.slotLocks[slot])
+        this.slotLocks[slot].lock();
+        try
         {
-            while (!this.tokensByPlayersID[slot].isEmpty())
+            BitSet players = this.playersBySlot[slot];
+            for (int player = players.nextSetBit(0); player >= 0; player = players.nextSetBit(player + 1))
             {
-                this.removeToken(this.tokensByPlayersID[slot].getFirst(),slot);
+                this.removeToken(player, slot);
             }
             env.ui.removeTokens(slot);
         }
+        finally
+        {
+            this.slotLocks[slot].unlock();
+        }
     }
 
     // get player tokens count
     public int getCountTokensByPlayer(int id) {
-        int count = 0;
-        for (LinkedList<Integer> lst : this.getTokensByPlayersID()) {
-            if (lst.contains(id)) {
-                count++;
-            }
+        synchronized (this.slotsByPlayer[id]) {
+            return this.slotsByPlayer[id].cardinality();
         }
-        return count;
     }
     
-    public Object[] getSlotLocks(){
+    public ReentrantLock[] getSlotLocks(){
         return this.slotLocks;
     }
 
@@ -0,0 +1,75 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AsyncUserInterfaceTest {
+
+    /**
+     * Records the updates it gets, and blocks on the first one until released.
+     */
+    static class RecordingUserInterface extends NullUserInterface {
+
+        final List<String> updates = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void placeCard(int card, int slot) {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            updates.add("card " + card + " " + slot);
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+            updates.add("token " + player + " " + slot);
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+            updates.add("countdown " + millies);
+        }
+
+        @Override
+        public void dispose() {
+            updates.add("dispose");
+        }
+    }
+
+    @Test
+    void dispose_AppliesUpdatesInOrder() {
+
+        RecordingUserInterface recording = new RecordingUserInterface();
+        recording.release.countDown();
+        UserInterface ui = new AsyncUserInterface(recording);
+        for (int i = 0; i < 3000; i++)
+            ui.placeToken(i % 4, i % 12);
+        ui.dispose();
+
+        assertEquals(3001, recording.updates.size());
+        assertEquals("token 3 11", recording.updates.get(2999));
+        assertEquals("dispose", recording.updates.get(3000));
+    }
+
+    @Test
+    void setCountdown_ConsecutiveUpdatesMerged() {
+
+        RecordingUserInterface recording = new RecordingUserInterface();
+        UserInterface ui = new AsyncUserInterface(recording);
+        ui.placeCard(5, 0); // the dispatcher blocks here, so the countdowns pile up
+        for (long millis = 10_000; millis > 0; millis -= 1000)
+            ui.setCountdown(millis, false);
+        ui.placeToken(1, 0);
+        recording.release.countDown();
+        ui.dispose();
+
+        assertEquals(List.of("card 5 0", "countdown 1000", "token 1 0", "dispose"), recording.updates);
+    }
+}
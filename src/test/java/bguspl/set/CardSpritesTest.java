@@ -0,0 +1,107 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardSpritesTest {
+
+    private static final Logger logger = Logger.getAnonymousLogger();
+
+    private static BufferedImage image(int width) {
+        return new BufferedImage(width, 1, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Takes a card's image, waiting for it to be decoded if needed.
+     */
+    private static BufferedImage takeDecoded(CardSprites sprites, int card) throws InterruptedException {
+        CountDownLatch decoded = new CountDownLatch(1);
+        BufferedImage image = sprites.take(card, decoded::countDown);
+        if (image != null)
+            return image;
+        decoded.await();
+        return sprites.take(card, () -> {});
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void take_DoesNotWaitForDecoding() throws InterruptedException {
+
+        CountDownLatch release = new CountDownLatch(1);
+        CardSprites sprites = new CardSprites(logger, 2, card -> {
+            await(release);
+            return image(card + 1);
+        }, image(100));
+
+        CountDownLatch decoded = new CountDownLatch(1);
+        assertNull(sprites.take(1, decoded::countDown));
+        release.countDown();
+        decoded.await();
+        assertEquals(2, sprites.take(1, () -> {}).getWidth());
+    }
+
+    @Test
+    void take_DecodesTheRequestedCardsFirst() throws InterruptedException {
+
+        // a single worker, busy with card 0 until card 50 is requested
+        CountDownLatch requested = new CountDownLatch(1);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        IntFunction<BufferedImage> decoder = card -> {
+            if (card == 0)
+                await(requested);
+            order.add(card);
+            return image(card + 1);
+        };
+        CardSprites sprites = new CardSprites(logger, 81, decoder, image(100), 1);
+
+        CountDownLatch decoded = new CountDownLatch(1);
+        assertNull(sprites.take(50, decoded::countDown));
+        requested.countDown();
+        decoded.await();
+
+        assertTrue(order.indexOf(50) <= 1);
+        assertEquals(51, sprites.take(50, () -> {}).getWidth());
+    }
+
+    @Test
+    void take_OnlyOnce() throws InterruptedException {
+
+        CardSprites sprites = new CardSprites(logger, 3, card -> image(card + 1), image(100));
+
+        assertEquals(3, takeDecoded(sprites, 2).getWidth());
+        assertNull(sprites.take(2, () -> {}));
+        assertEquals(1, takeDecoded(sprites, 0).getWidth());
+    }
+
+    @Test
+    void take_FallsBackWhenDecodingFails() throws InterruptedException {
+
+        CardSprites sprites = new CardSprites(logger, 3, card -> {
+            if (card == 0)
+                throw new IllegalStateException("corrupt image");
+            return card == 1 ? null : image(card + 1);
+        }, image(100));
+
+        assertEquals(100, takeDecoded(sprites, 0).getWidth());
+        assertNull(sprites.take(0, () -> {}));
+        assertEquals(100, takeDecoded(sprites, 1).getWidth());
+        assertEquals(3, takeDecoded(sprites, 2).getWidth());
+    }
+}
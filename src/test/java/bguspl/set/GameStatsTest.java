@@ -0,0 +1,44 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameStatsTest {
+
+    GameStats stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = new GameStats(3);
+    }
+
+    @Test
+    void claimLatency_Percentiles() {
+
+        for (int micros = 1; micros <= 1000; micros++)
+            stats.recordClaim(micros * 1000L);
+
+        assertEquals(1000, stats.claims());
+        long p50 = stats.claimLatencyMicros(50);
+        long p99 = stats.claimLatencyMicros(99);
+        assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8, "p50 was " + p50);
+        assertTrue(p99 >= 990 && p99 <= 990 * 9 / 8, "p99 was " + p99);
+        assertTrue(stats.claimLatencyMicros(100) >= 1000);
+        assertEquals(1, stats.claimLatencyMicros(0));
+    }
+
+    @Test
+    void recordWinners_CountsTies() {
+
+        stats.recordWinners(new int[]{0});
+        stats.recordWinners(new int[]{0, 2});
+
+        assertEquals(2, stats.wins(0));
+        assertEquals(0, stats.wins(1));
+        assertEquals(1, stats.wins(2));
+        assertEquals(1, stats.ties());
+    }
+}
@@ -0,0 +1,54 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeAndRead_RecordsInOrder() throws IOException {
+
+        Path path = dir.resolve("game.journal");
+        try (Journal journal = Journal.open(path)) {
+            journal.cardPlaced(5, 3);
+            journal.tokenPlaced(1, 3);
+            journal.claimVerdict(1, true);
+        }
+
+        try (JournalReader reader = new JournalReader(path)) {
+            assertTrue(reader.next());
+            assertEquals(Journal.Type.CARD_PLACED, reader.type());
+            assertEquals(3, reader.slot());
+            assertEquals(5, reader.value());
+            assertEquals(Thread.currentThread().threadId(), reader.threadId());
+
+            assertTrue(reader.next());
+            assertEquals(Journal.Type.TOKEN_PLACED, reader.type());
+            assertEquals(1, reader.player());
+
+            assertTrue(reader.next());
+            assertEquals(Journal.Type.CLAIM_VERDICT, reader.type());
+            assertEquals(1, reader.value());
+
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void disabled_RecordsNothing() throws IOException {
+
+        assertFalse(Journal.DISABLED.isEnabled());
+        Journal.DISABLED.cardPlaced(0, 0);
+        Journal.DISABLED.close();
+    }
+}
@@ -0,0 +1,22 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserInterfaceSwingTest {
+
+    @Test
+    void intInBaseToPaddedString_PadsWithZeros() {
+
+        assertEquals("0000", UserInterfaceSwing.intInBaseToPaddedString(0, 4, 3));
+        assertEquals("0012", UserInterfaceSwing.intInBaseToPaddedString(5, 4, 3));
+        assertEquals("2222", UserInterfaceSwing.intInBaseToPaddedString(80, 4, 3));
+    }
+
+    @Test
+    void intInBaseToPaddedString_LongerThanPadding() {
+
+        assertEquals("10000", UserInterfaceSwing.intInBaseToPaddedString(81, 4, 3));
+    }
+}
@@ -0,0 +1,85 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    Util util;
+    Config config;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        config = new Config(new MockLogger(), properties);
+        util = new UtilImpl(config);
+    }
+
+    @Test
+    void testSet_LegalAndIllegal() {
+
+        assertTrue(util.testSet(new int[]{0, 1, 2}));
+        assertTrue(util.testSet(new int[]{0, 40, 80}));
+        assertFalse(util.testSet(new int[]{0, 1, 3}));
+    }
+
+    @Test
+    void findSets_WholeDeck() {
+
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+
+        // every pair of cards in a 81 cards deck belongs to exactly one set
+        assertEquals(81 * 80 / 6, sets.size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+        assertEquals(sets.size(), sets.stream().map(Arrays::toString).distinct().count());
+    }
+
+    @Test
+    void findSets_UpToCount() {
+
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(1, util.findSets(deck, 1).size());
+    }
+
+    @Test
+    void findSets_NoSet() {
+
+        assertTrue(util.findSets(Arrays.asList(0, 1, 3, 4), Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void packedUtil_MatchesUtilImpl() {
+
+        Util packed = new PackedUtilImpl(config);
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b)
+                for (int c = b + 1; c < config.deckSize; c += 7) {
+                    int[] cards = {a, b, c};
+                    assertEquals(util.testSet(cards), packed.testSet(cards));
+                }
+
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(util.findSets(deck, Integer.MAX_VALUE).size(), packed.findSets(deck, Integer.MAX_VALUE).size());
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
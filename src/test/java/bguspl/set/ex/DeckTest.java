@@ -0,0 +1,64 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    Deck deck;
+
+    @BeforeEach
+    void setUp() {
+        deck = new Deck(81);
+    }
+
+    @Test
+    void draw_AllCardsOnce() {
+
+        deck.shuffle(new Random(0));
+        Set<Integer> drawn = new HashSet<>();
+        while (!deck.isEmpty())
+            drawn.add(deck.draw());
+
+        assertEquals(81, drawn.size());
+    }
+
+    @Test
+    void shuffle_SameSeedSameOrder() {
+
+        Deck other = new Deck(81);
+        deck.shuffle(new SplittableRandom(42));
+        other.shuffle(new SplittableRandom(42));
+
+        assertEquals(other.asList(), deck.asList());
+    }
+
+    @Test
+    void draw_SpecificCardOnce() {
+
+        assertTrue(deck.draw(40));
+        assertEquals(80, deck.size());
+        assertFalse(deck.asList().contains(40));
+        assertFalse(deck.draw(40));
+    }
+
+    @Test
+    void add_ReturnsCardToDeck() {
+
+        int card = deck.draw();
+        assertEquals(80, deck.size());
+
+        deck.add(card);
+        assertEquals(81, deck.size());
+        assertTrue(deck.asList().contains(card));
+    }
+}
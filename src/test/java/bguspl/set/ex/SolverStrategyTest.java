@@ -0,0 +1,116 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolverStrategyTest {
+
+    private static final long REACTION_MILLIS = 200;
+
+    private Env env;
+    private Table table;
+
+    /**
+     * The time of the strategy's clock, in nanoseconds.
+     */
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ComputerReactionSeconds", String.valueOf(REACTION_MILLIS / 1000.0));
+        properties.put("ComputerErrorRate", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, new Integer[config.tableSize], new Integer[config.deckSize]);
+    }
+
+    private SolverStrategy strategy(long seed) {
+        return new SolverStrategy(env, table, new SplittableRandom(seed), () -> now);
+    }
+
+    /**
+     * Advances the clock by the strategy's delay and asks it for keys (like the computer player loop does).
+     */
+    private int[] step(SolverStrategy strategy) {
+        now += strategy.delayMillis() * 1_000_000;
+        return strategy.nextKeys(0);
+    }
+
+    @Test
+    void nextKeys_ReactsAfterTheReactionTimeFromTheDeal() {
+
+        SolverStrategy strategy = strategy(0);
+
+        // let the player idle for a while on an empty table, out of phase with its reaction time
+        for (int i = 0; i < 71; i++)
+            assertEquals(0, step(strategy).length);
+
+        // deal a set (the cards 0, 1 and 2 differ only in the last feature); it is noticed on the next check
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+        assertEquals(0, step(strategy).length);
+        long noticed = now;
+
+        long checked;
+        int[] keys;
+        do {
+            checked = now;
+            keys = step(strategy);
+        } while (keys.length == 0);
+
+        // pressed on the first check at least the reaction time after the deal was noticed
+        assertEquals(3, keys.length);
+        assertTrue(checked - noticed < REACTION_MILLIS * 1_000_000);
+        assertTrue(now - noticed >= REACTION_MILLIS * 1_000_000);
+    }
+
+    @Test
+    void delayMillis_NeverSpins() {
+
+        SolverStrategy strategy = strategy(0);
+        for (int i = 0; i < 100; i++) {
+            step(strategy);
+            long delay = strategy.delayMillis();
+            assertTrue(delay >= SolverStrategy.POLL_MILLIS && delay < 2 * SolverStrategy.POLL_MILLIS);
+        }
+    }
+
+    @Test
+    void nextKeys_ChoosesAmongAllTheSets() {
+
+        // cards 0..8 (the first 2 features are 0) hold 12 sets
+        for (int card = 0; card < 9; card++)
+            table.placeCard(card, card);
+
+        Set<Integer> firstKeys = new HashSet<>();
+        for (long seed = 0; seed < 20; seed++) {
+            SolverStrategy strategy = strategy(seed);
+            int[] keys = step(strategy);
+            while (keys.length == 0)
+                keys = step(strategy);
+            firstKeys.add(keys[0] * 100 + keys[1] * 10 + keys[2]);
+        }
+        assertTrue(firstKeys.size() > 1);
+    }
+}
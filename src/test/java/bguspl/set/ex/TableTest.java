@@ -4,14 +4,22 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Properties;
+import java.util.Random;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
@@ -95,6 +103,89 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void placeToken_CountsAndPlayerSet() throws InterruptedException {
+
+        fillAllSlots();
+        table.placeToken(0, 0);
+        table.placeToken(0, 3);
+        table.placeToken(1, 3);
+
+        assertEquals(2, table.getCountTokensByPlayer(0));
+        assertEquals(1, table.getCountTokensByPlayer(1));
+        assertEquals(0, table.getPlayerSet(0)[0]);
+        assertEquals(3, table.getPlayerSet(0)[1]);
+        assertArrayEquals(new int[]{0, 3}, table.getPlayerTokens(0));
+        assertArrayEquals(new int[]{3}, table.getPlayerTokens(1));
+    }
+
+    @Test
+    void removeToken_OnlyExistingTokens() {
+
+        fillAllSlots();
+        table.placeToken(0, 1);
+
+        assertFalse(table.removeToken(1, 1));
+        assertTrue(table.hasToken(0, 1));
+        assertTrue(table.removeToken(0, 1));
+        assertFalse(table.hasToken(0, 1));
+        assertFalse(table.removeToken(0, 1));
+        assertEquals(0, table.getCountTokensByPlayer(0));
+    }
+
+    @Test
+    void resetAllTokens_ClearsSlot() {
+
+        fillAllSlots();
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+        table.placeToken(1, 0);
+        table.resetAllTokens(2);
+
+        assertEquals(0, table.getCountTokensByPlayer(0));
+        assertEquals(1, table.getCountTokensByPlayer(1));
+    }
+
+    @Test
+    void getSets_MatchesFindSets() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("TableDelaySeconds", "0");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), util));
+
+        // place and remove random cards, checking the sets index against a full search each time
+        Random random = new Random(0);
+        Comparator<int[]> order = Arrays::compare;
+        for (int i = 0; i < 500; i++) {
+            int slot = random.nextInt(config.tableSize);
+            if (random.nextInt(3) == 0) {
+                table.removeCard(slot);
+            } else {
+                int card = random.nextInt(config.deckSize);
+                if (table.getSlot(card) == null)
+                    table.placeCard(card, slot);
+            }
+
+            List<Integer> cards = new ArrayList<>();
+            for (int s = 0; s < config.tableSize; s++)
+                if (table.getCard(s) != null)
+                    cards.add(table.getCard(s));
+            List<int[]> expected = util.findSets(cards, Integer.MAX_VALUE);
+            List<int[]> actual = table.getSets();
+            expected.sort(order);
+            actual.sort(order);
+            assertEquals(expected.size(), actual.size());
+            for (int j = 0; j < expected.size(); j++)
+                assertArrayEquals(expected.get(j), actual.get(j));
+            assertEquals(!expected.isEmpty(), table.hasSet());
+        }
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -143,6 +234,11 @@ class TableTest {
             return null;
         }
 
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
         @Override
         public void spin() {}
     }